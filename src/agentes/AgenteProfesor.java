@@ -3,10 +3,13 @@ package agentes;
 import behaviours.MessageCollectorBehaviour;
 import behaviours.NegotiationFSMBehaviour;
 import behaviours.NegotiationStateBehaviour;
+import behaviours.RequestGrantBehaviour;
+import constants.NegotiationConfig;
 import constants.Messages;
 import constants.enums.Day;
 import constants.enums.TipoContrato;
 import debugscreens.ProfessorDebugViewer;
+import interfaces.NegotiationInterface;
 import df.DFCache;
 import jade.core.Agent;
 import jade.core.behaviours.*;
@@ -18,9 +21,14 @@ import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import json_stuff.ProfesorHorarioJSON;
+import logging.Log;
+import objetos.ActiveSubjectState;
 import objetos.Asignatura;
 import objetos.BloqueInfo;
+import objetos.ProfessorSchedule;
+import objetos.RoomCatalog;
 import objetos.helper.BatchProposal;
+import objetos.helper.SlotGrid;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -38,14 +46,11 @@ public class AgenteProfesor extends Agent {
     private String nombre;
     private List<Asignatura> asignaturas;
     private int asignaturaActual = 0;
-    private Map<Day, Set<Integer>> horarioOcupado; // dia -> bloques
+    private ProfessorSchedule horario; // bloques asignados indexados por slot
+    private ActiveSubjectState activeSubject; // agregados de la asignatura actual para el evaluador
     private int orden;
-    private JSONObject horarioJSON;
     private boolean isRegistered = false;
     private boolean isCleaningUp = false;
-    //TODO: Cambiar el mapeo de string a int porque los días son del 0-6 (asumiendo que el lunes es 0).
-    //TODO-2: Pienso que puede ser mejor tener un objeto que contenga la información de los bloques asignados.
-    private Map<Day, Map<String, List<Integer>>> bloquesAsignadosPorDia; // dia -> (bloque -> asignatura)
     //private AgentPerformanceMonitor performanceMonitor;
     private AgentMessageLogger messageLogger;
 
@@ -56,9 +61,10 @@ public class AgenteProfesor extends Agent {
     }
 
     public TipoContrato inferirTipoContrato(List<Asignatura> asignaturas) {
-        int horasTotales = asignaturas.stream()
-                .mapToInt(Asignatura::getHoras)
-                .sum();
+        int horasTotales = 0;
+        for (Asignatura asignatura : asignaturas) {
+            horasTotales += asignatura.getHoras();
+        }
 
         return inferirTipoContrato(horasTotales);
     }
@@ -83,13 +89,13 @@ public class AgenteProfesor extends Agent {
             // Validate the current subject exists
             Asignatura current = asignaturas.get(asignaturaActual);
             if (current == null) {
-                System.out.println("Warning: Null subject at index " + asignaturaActual);
+                Log.warn("Warning: Null subject at index " + asignaturaActual);
                 return false;
             }
 
             return true;
         } catch (IndexOutOfBoundsException e) {
-            System.err.printf("Index out of bounds checking for more subjects: %d/%d%n",
+            Log.warn("Index out of bounds checking for more subjects: %d/%d",
                     asignaturaActual, asignaturas.size());
             return false;
         }
@@ -102,6 +108,18 @@ public class AgenteProfesor extends Agent {
         return asignaturas.get(asignaturaActual);
     }
 
+    public synchronized int getCurrentSubjectIndex() {
+        return asignaturaActual;
+    }
+
+    /**
+     * Asignaturas desde la actual en adelante, como maximo max (para los CFP por lotes).
+     */
+    public synchronized List<Asignatura> getUpcomingSubjects(int max) {
+        int from = Math.min(asignaturaActual, asignaturas.size());
+        return new ArrayList<>(asignaturas.subList(from, Math.min(asignaturas.size(), from + max)));
+    }
+
     public int getOrden() {
         return orden;
     }
@@ -109,11 +127,11 @@ public class AgenteProfesor extends Agent {
     private int currentInstanceIndex = 0;
 
     public synchronized void moveToNextSubject() {
-        System.out.printf("[MOVE] Moving from subject index %d (total: %d)%n",
+        Log.debug("[MOVE] Moving from subject index %d (total: %d)",
                 asignaturaActual, asignaturas.size());
 
         if (asignaturaActual >= asignaturas.size()) {
-            System.out.println("[MOVE] Already at last subject");
+            Log.debug("[MOVE] Already at last subject");
             return;
         }
 
@@ -126,20 +144,34 @@ public class AgenteProfesor extends Agent {
             if (next.getNombre().equals(currentName) &&
                     next.getCodigoAsignatura().equals(currentCode)) {
                 currentInstanceIndex++;
-                System.out.printf("[MOVE] Moving to next instance (%d) of %s%n",
+                Log.debug("[MOVE] Moving to next instance (%d) of %s",
                         currentInstanceIndex, currentName);
             } else {
                 currentInstanceIndex = 0;
-                System.out.printf("[MOVE] Moving to new subject %s%n",
+                Log.debug("[MOVE] Moving to new subject %s",
                         next.getNombre());
             }
         } else {
-            System.out.println("[MOVE] Reached end of subjects");
+            Log.debug("[MOVE] Reached end of subjects");
         }
+
+        Asignatura current = getCurrentSubject();
+        activeSubject.startSubject(current != null ? current.getNombre() : null, horario);
+    }
+
+    /**
+     * Bloques ocupados del profesor como mascara SlotGrid.
+     */
+    public long getOccupiedMask() {
+        return horario.getOccupiedMask();
     }
 
     public boolean isBlockAvailable(Day dia, int bloque) {
-        return !horarioOcupado.containsKey(dia) || !horarioOcupado.get(dia).contains(bloque);
+        return horario.isBlockAvailable(dia, bloque);
+    }
+
+    public ProfessorSchedule getSchedule() {
+        return horario;
     }
 
     public String getNombre() {
@@ -147,54 +179,29 @@ public class AgenteProfesor extends Agent {
     }
 
     public Map<String, List<Integer>> getBlocksByDay(Day dia) {
-        return bloquesAsignadosPorDia.getOrDefault(dia, new HashMap<>());
+        return horario.getBlocksByDay(dia);
     }
 
     public Map<Day, List<Integer>> getBlocksBySubject(String nombreAsignatura) {
-        Map<Day, List<Integer>> bloquesAsignados = new HashMap<>();
-        for (Map.Entry<Day, Map<String, List<Integer>>> entry : bloquesAsignadosPorDia.entrySet()) {
-            // Look for all keys that start with the asignatura name
-            for (Map.Entry<String, List<Integer>> subjectEntry : entry.getValue().entrySet()) {
-                if (subjectEntry.getKey().startsWith(nombreAsignatura)) {
-                    if (!subjectEntry.getValue().isEmpty()) {
-                        bloquesAsignados.computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
-                                .addAll(subjectEntry.getValue());
-                    }
-                }
-            }
-        }
-        return bloquesAsignados;
+        return horario.getBlocksBySubject(nombreAsignatura);
     }
 
-    public BloqueInfo getBloqueInfo(Day dia, int bloque) {
-        Map<String, List<Integer>> clasesDelDia = getBlocksByDay(dia);
-        if(clasesDelDia == null) {
-            return null;
-        }
-
-        for (Map.Entry<String, List<Integer>> entry : clasesDelDia.entrySet()) {
-            //si no hay bloque asociado a la asignatura, pasar de largo
-            if(!entry.getValue().contains(bloque)) {
-                continue;
-            }
-            // Buscar el campus de la asignatura
-            for (Asignatura asig : asignaturas) {
-                if (asig.getNombre().equals(entry.getKey())) {
-                    return new BloqueInfo(asig.getCampus(), bloque);
-                }
-            }
-        }
+    /**
+     * Bloques ya asignados a la asignatura (todas sus instancias) como mascara SlotGrid.
+     */
+    public long getSubjectMask(String nombreAsignatura) {
+        return horario.getSubjectMask(nombreAsignatura);
+    }
 
-        //agregar esto mientras refactorizo lo otro
-        return null;
+    /**
+     * Agregados de la asignatura actual (bloques, uso de salas, contrato), al dia con el horario.
+     */
+    public ActiveSubjectState getActiveSubjectState() {
+        return activeSubject;
     }
 
-    private String getCurrentInstanceKey() {
-        Asignatura current = getCurrentSubject();
-        return String.format("%s-%s-%d",
-                current.getNombre(),
-                current.getCodigoAsignatura(),
-                currentInstanceIndex);  // Instance index
+    public BloqueInfo getBloqueInfo(Day dia, int bloque) {
+        return horario.getBloqueInfo(dia, bloque);
     }
 
     public void setDebugWindow(ProfessorDebugViewer debugWindow) {
@@ -203,38 +210,25 @@ public class AgenteProfesor extends Agent {
 
     //TODO: Refactorizar esto, ya que se ve bien feo
     public void updateScheduleInfo(Day dia, String sala, int bloque, String nombreAsignatura, int satisfaccion) {
-        String currentInstanceKey = getCurrentInstanceKey();
-
-        // Update horario ocupado
-        horarioOcupado.computeIfAbsent(dia, k -> new HashSet<>()).add(bloque);
-
-        // Update bloques por día with instance information
-        bloquesAsignadosPorDia.computeIfAbsent(dia, k -> new HashMap<>())
-                .computeIfAbsent(currentInstanceKey, k -> new ArrayList<>())
-                .add(bloque);
-
-        actualizarHorarioJSON(dia, sala, bloque, satisfaccion);//, currentInstanceKey);
+        // Solo se registra el bloque; el JSON se arma una vez en finalizarNegociaciones
+        if (horario.assign(dia, bloque, asignaturaActual, currentInstanceIndex, sala, satisfaccion)) {
+            activeSubject.onAssigned(nombreAsignatura, dia, bloque, horario);
+        }
 
-        if (debugWindow != null && horarioJSON != null && horarioJSON.containsKey("Asignaturas")) {
+        if (debugWindow != null) {
+            JSONObject horarioJSON = new JSONObject();
+            horarioJSON.put("Asignaturas", ProfesorHorarioJSON.toAsignaturasJSON(horario, asignaturas));
+            int completed = asignaturaActual;
             SwingUtilities.invokeLater(() -> {
                 try {
-                    debugWindow.updateSchedule(horarioJSON, asignaturaActual, asignaturas.size());
+                    debugWindow.updateSchedule(horarioJSON, completed, asignaturas.size());
                 } catch (Exception e) {
-                    System.err.println("Error updating debug window for professor " + nombre + ": " + e.getMessage());
-                    e.printStackTrace();
+                    Log.error("Error updating debug window for professor " + nombre, e);
                 }
             });
         }
     }
 
-    private Map<String, Integer> requiredHoursPerInstance;
-    private Map<String, String> subjectInstanceKeys; // Track which instance a subject belongs to
-    private int instanceCounter = 0;
-
-    private String generateInstanceKey(String nombre, String codigo) {
-        return String.format("%s-%s-%d", nombre, codigo, instanceCounter++);
-    }
-
     private ProfessorDebugViewer debugWindow;
 
     public ProfessorDebugViewer getDebugWindow() {
@@ -242,7 +236,7 @@ public class AgenteProfesor extends Agent {
     }
 
     //private NegotiationStateBehaviour negotiationBehaviour;
-    private NegotiationFSMBehaviour negotiationBehaviour;
+    private NegotiationInterface negotiationBehaviour;
 
     public int getBloquesPendientesInNegotiation() {
         return negotiationBehaviour.getBloquesPendientes();
@@ -263,25 +257,25 @@ public class AgenteProfesor extends Agent {
         messageLogger = AgentMessageLogger.getInstance();
 
         initializeDataStructures();
-        requiredHoursPerInstance = new HashMap<>();
-        subjectInstanceKeys = new HashMap<>();
-
-        for (Asignatura asig : asignaturas) {
-            String instanceKey = generateInstanceKey(asig.getNombre(), asig.getCodigoAsignatura());
-            requiredHoursPerInstance.put(instanceKey, asig.getHoras());
-            subjectInstanceKeys.put(instanceKey, asig.getNombre());
-        }
 
         registrarEnDF();
-        NegotiationFSMBehaviour stateBehaviour = new NegotiationFSMBehaviour(this);
+        Behaviour stateBehaviour;
+        if (NegotiationConfig.REQUEST_GRANT_PROTOCOL) {
+            RequestGrantBehaviour grantBehaviour = new RequestGrantBehaviour(this);
+            negotiationBehaviour = grantBehaviour;
+            stateBehaviour = grantBehaviour;
+        } else {
+            NegotiationFSMBehaviour fsmBehaviour = new NegotiationFSMBehaviour(this);
+            negotiationBehaviour = fsmBehaviour;
+            stateBehaviour = fsmBehaviour;
+        }
 
-        if (orden == 0) {
+        // Los primeros PROFESSOR_WINDOW profesores parten de inmediato; el resto espera su START
+        if (orden < NegotiationConfig.PROFESSOR_WINDOW) {
             addBehaviour(stateBehaviour);
         } else {
             addBehaviour(new EsperarTurnoBehaviour(this, stateBehaviour));
         }
-
-        negotiationBehaviour = stateBehaviour;
     }
 
     public String getSubjectKey(Asignatura subject) {
@@ -290,17 +284,12 @@ public class AgenteProfesor extends Agent {
 
     private void initializeDataStructures() {
         // Initialize schedule tracking
-        horarioOcupado = new HashMap<>();
+        List<Asignatura> subjects = asignaturas != null ? asignaturas : new ArrayList<>();
+        horario = new ProfessorSchedule(subjects);
 
-        // Initialize JSON structures
-        horarioJSON = new JSONObject();
-        horarioJSON.put("Asignaturas", new JSONArray());
-
-        // Initialize daily block assignments
-        bloquesAsignadosPorDia = new HashMap<>();
-        for (Day dia : Day.values()) {
-            bloquesAsignadosPorDia.put(dia, new HashMap<>());
-        }
+        // El contrato solo depende de las horas totales: se calcula una vez
+        activeSubject = new ActiveSubjectState(inferirTipoContrato(subjects), RoomCatalog.get());
+        activeSubject.startSubject(subjects.isEmpty() ? null : subjects.get(0).getNombre(), horario);
     }
 
     private void registrarEnDF() {
@@ -320,10 +309,9 @@ public class AgenteProfesor extends Agent {
             dfd.addServices(sd);
             DFService.register(this, dfd);
             isRegistered = true;
-            System.out.println("Professor " + nombre + " registered with order " + orden + " con tipo contrato: " + inferirTipoContrato(asignaturas));
+            Log.info("Professor " + nombre + " registered with order " + orden + " con tipo contrato: " + inferirTipoContrato(asignaturas));
         } catch (FIPAException fe) {
-            System.err.println("Error registering professor " + nombre + " in DF: " + fe.getMessage());
-            fe.printStackTrace();
+            Log.error("Error registering professor " + nombre + " in DF", fe);
         }
     }
 
@@ -348,21 +336,21 @@ public class AgenteProfesor extends Agent {
                 asignaturas.add(parsedSubject);
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Error leyendo los datos del profesor " + getLocalName(), e);
         }
     }
 
     public TipoContrato getTipoContrato() {
-        return inferirTipoContrato(asignaturas);
+        return activeSubject.getTipoContrato();
     }
 
     public class EsperarTurnoBehaviour extends CyclicBehaviour {
         private final AgenteProfesor profesor;
-        private final NegotiationFSMBehaviour stateBehaviour;
+        private final Behaviour stateBehaviour;
         //private final MessageCollectorBehaviour messageCollector;
 
         public EsperarTurnoBehaviour(AgenteProfesor profesor,
-                                     NegotiationFSMBehaviour stateBehaviour){
+                                     Behaviour stateBehaviour){
                                      //MessageCollectorBehaviour messageCollector) {
             super(profesor);
             this.profesor = profesor;
@@ -383,7 +371,7 @@ public class AgenteProfesor extends Agent {
                 int nextOrden = Integer.parseInt(nextOrdenStr);
 
                 if (nextOrden == profesor.getOrden()) {
-                    System.out.println("Professor " + profesor.getNombre() +
+                    Log.info("Professor " + profesor.getNombre() +
                             " received START signal. My order=" + profesor.getOrden() +
                             ", requested order=" + nextOrden);
 
@@ -400,24 +388,6 @@ public class AgenteProfesor extends Agent {
         }
     }
 
-    //why is this a god object?
-    public void actualizarHorarioJSON(Day dia, String sala, int bloque, int satisfaccion) {
-        // Get current subject
-        Asignatura currentSubject = asignaturas.get(asignaturaActual);
-
-        JSONObject asignatura = new JSONObject();
-        asignatura.put("Nombre", currentSubject.getNombre());
-        asignatura.put("Sala", sala);
-        asignatura.put("Bloque", bloque);
-        asignatura.put("Dia", dia.getDisplayName());
-        asignatura.put("Satisfaccion", satisfaccion);
-        asignatura.put("CodigoAsignatura", currentSubject.getCodigoAsignatura());
-        asignatura.put("Instance", currentInstanceIndex); // or currentInstanceIndex if you have it
-        asignatura.put("Actividad", currentSubject.getActividad().toString());
-
-        ((JSONArray) horarioJSON.get("Asignaturas")).add(asignatura);
-    }
-
     public void finalizarNegociaciones() {
         // Finalizar negociaciones y limpiar
         try {
@@ -428,7 +398,7 @@ public class AgenteProfesor extends Agent {
 
             // Guardar horario final
             ProfesorHorarioJSON.getInstance().agregarHorarioProfesor(
-                    nombre, horarioJSON, asignaturas);
+                    nombre, horario, asignaturas);
 
             // Notificar al siguiente profesor antes de hacer cleanup
             notificarSiguienteProfesor();
@@ -436,14 +406,17 @@ public class AgenteProfesor extends Agent {
             // Realizar cleanup y terminar
             cleanup();
         } catch (Exception e) {
-            System.err.println("Error finalizando negociaciones para profesor " + nombre + ": " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error finalizando negociaciones para profesor " + nombre, e);
         }
     }
 
+    /**
+     * Con una ventana de N profesores, al terminar se cede el lugar a orden + N. Cada una de
+     * las N cadenas avisa al supervisor cuando se queda sin profesores.
+     */
     private void notificarSiguienteProfesor() {
         try {
-            int nextOrden = orden + 1;
+            int nextOrden = orden + NegotiationConfig.PROFESSOR_WINDOW;
 
             Property ordenProp = new Property();
             ordenProp.setName("orden");
@@ -453,7 +426,7 @@ public class AgenteProfesor extends Agent {
             List<DFAgentDescription> results = DFCache.search(this, SERVICE_NAME, ordenProp);
 
             if (results.isEmpty()) {
-                System.out.println("WARNING: No hay mas profesores disponibles, avisando a supervisor");
+                Log.warn("WARNING: No hay mas profesores disponibles, avisando a supervisor");
                 // Notify supervisor or handle the case where no next professor is found
                 results = DFCache.search(this, AgenteSupervisor.AGENT_NAME);
                 ACLMessage ackMsg = new ACLMessage(ACLMessage.CANCEL);
@@ -470,8 +443,7 @@ public class AgenteProfesor extends Agent {
             notifyNextProfessor(nextProfessor, nextOrden);
 
         } catch (Exception e) {
-            System.err.println("Error notifying next professor: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error notifying next professor", e);
         }
     }
 
@@ -483,11 +455,10 @@ public class AgenteProfesor extends Agent {
             msg.addUserDefinedParameter("nextOrden", Integer.toString(nextOrden));
             messageLogger.logMessageSent(getLocalName(), msg);
             send(msg);
-            System.out.println("Successfully notified next professor " +
+            Log.info("Successfully notified next professor " +
                     dfd.getName().getLocalName() + " with order: " + nextOrden);
         } catch (Exception e) {
-            System.err.println("Error sending notification: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error sending notification", e);
         }
     }
     
@@ -502,10 +473,10 @@ public class AgenteProfesor extends Agent {
             if (isRegistered) {
                 try {
                     DFService.deregister(this);
-                    System.out.println("Professor " + nombre + " removed from DF");
+                    Log.debug(() -> "Professor " + nombre + " removed from DF");
                 } catch (FIPAException fe) {
                     // If deregistration fails, it means we're already deregistered
-                    System.out.println("Professor " + nombre + " was already deregistered");
+                    Log.debug(() -> "Professor " + nombre + " was already deregistered");
                 }
                 isRegistered = false;
 
@@ -519,13 +490,12 @@ public class AgenteProfesor extends Agent {
                         try {
                             doDelete();
                         } catch (Exception e) {
-                            System.err.println("Error during agent deletion: " + e.getMessage());
+                            Log.warn("Error during agent deletion: %s", e.getMessage());
                         }
                     });
 
         } catch (Exception e) {
-            System.err.println("Error during cleanup for professor " + nombre + ": " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error during cleanup for professor " + nombre, e);
         } finally {
             isCleaningUp = false;
         }
@@ -533,40 +503,15 @@ public class AgenteProfesor extends Agent {
 
     @Override
     protected void takeDown() {
-        // Get actual completion numbers
-        Map<String, Integer> assignedHours = new HashMap<>();
-        JSONArray asignaturas = (JSONArray) horarioJSON.get("Asignaturas");
-
-        // Count assigned hours per instance
-        for (Object obj : asignaturas) {
-            JSONObject asignatura = (JSONObject) obj;
-            String nombreAsig = (String) asignatura.get("Nombre");
-            String codigo = (String) asignatura.get("CodigoAsignatura");
-            int instance = ((Number) asignatura.get("Instance")).intValue();
-            String instanceKey = String.format("%s-%s-%d", nombreAsig, codigo, instance);
-            assignedHours.merge(instanceKey, 1, Integer::sum);
-        }
-
-        // Count completed subjects
-        int completedCount = 0;
-        int totalSubjects = 0;
+        // Completion numbers from the typed schedule, by subject index
+        int completedCount = horario != null && asignaturas != null ? horario.countCompletedSubjects(asignaturas) : 0;
+        int totalSubjects = asignaturas != null ? asignaturas.size() : 0;
         int totalRequiredHours = 0;
-
-        for (Asignatura asig : this.asignaturas) {
-            totalSubjects++;
-            totalRequiredHours += asig.getHoras();
-
-            String instanceKey = String.format("%s-%s-%d",
-                    asig.getNombre(),
-                    asig.getCodigoAsignatura(),
-                    totalSubjects - 1);
-
-            if (assignedHours.getOrDefault(instanceKey, 0) >= asig.getHoras()) {
-                completedCount++;
-            }
+        for (int i = 0; i < totalSubjects; i++) {
+            totalRequiredHours += asignaturas.get(i).getHoras();
         }
 
-        System.out.printf("Profesor %s finalizado con %d/%d asignaturas completas (requirió %d horas totales)%n",
+        Log.info("Profesor %s finalizado con %d/%d asignaturas completas (requirió %d horas totales)",
                 nombre,
                 completedCount,
                 totalSubjects,
@@ -1,7 +1,9 @@
 package agentes;
 
-import constants.Commons;
 import constants.enums.Day;
+import evaluators.ConstraintEvaluator;
+import evaluators.HardConstraints;
+import evaluators.TimetablingEvaluator;
 import interfaces.SalaDataInterface;
 import jade.core.Agent;
 import jade.core.behaviours.*;
@@ -12,18 +14,32 @@ import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPAException;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
-import jade.proto.SubscriptionInitiator;
+import jade.domain.FIPAAgentManagement.NotUnderstoodException;
+import jade.domain.FIPAAgentManagement.RefuseException;
+import jade.proto.SubscriptionResponder;
 import json_stuff.SalaHorarioJSON;
+import logging.Log;
 import objetos.AsignacionSala;
+import objetos.AvailabilityUpdate;
+import objetos.BatchAvailability;
 import objetos.ClassroomAvailability;
+import objetos.ClassroomOccupancy;
+import objetos.ClassroomSnapshot;
+import objetos.RoomCatalog;
 import objetos.helper.BatchAssignmentConfirmation;
 import objetos.helper.BatchAssignmentRequest;
+import objetos.helper.CodecRegistry;
+import objetos.helper.GrantRequest;
+import objetos.helper.SolicitudInfo;
+import objetos.helper.SlotGrid;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import performance.*;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -34,7 +50,16 @@ public class AgenteSala extends Agent implements SalaDataInterface {
     private String campus;
     private int capacidad;
     private int turno;
-    private Map<Day, List<AsignacionSala>> horarioOcupado; // dia -> lista de asignaciones
+    private ClassroomOccupancy horarioOcupado; // bitmask de bloques ocupados + datos por bloque
+    private long stateVersion = 0;
+    private volatile ClassroomSnapshot snapshot; // leido por O2A desde otros hilos
+    private AvailabilitySubscriptionResponder availabilitySubscriptions;
+    private byte[] proposePayload; // disponibilidad codificada de proposePayloadVersion
+    private long proposePayloadVersion = -1;
+    // Respuestas filtradas por reglas duras, una por combinacion (paridad de nivel, paridad de pendientes)
+    private final byte[][] filteredPayloads = new byte[4][];
+    private final long[] filteredPayloadVersions = {-1, -1, -1, -1};
+    private static final byte[] NO_BLOCKS = new byte[0];
     //private AgentPerformanceMonitor performanceMonitor;
 
     private RTTLogger rttLogger;
@@ -46,14 +71,6 @@ public class AgenteSala extends Agent implements SalaDataInterface {
         rttLogger = RTTLogger.getInstance();
         // Inicializar estructuras
         initializeSchedule();
-        horarioOcupado = new HashMap<>();
-        for (Day dia : Day.values()) {
-            List<AsignacionSala> asignaciones = new ArrayList<>();
-            for (int i = 0; i < Commons.MAX_BLOQUE_DIURNO; i++) { // 5 bloques por día
-                asignaciones.add(null);
-            }
-            horarioOcupado.put(dia, asignaciones);
-        }
 
         //get passed arguments
         Object[] args = getArguments();
@@ -74,12 +91,15 @@ public class AgenteSala extends Agent implements SalaDataInterface {
         if (args != null && args.length > 0) {
             parseJSON((String) args[0]);
         }
+        publishSnapshot();
 
         // Registrar en el DF
         registrarEnDF();
 
         // Agregar comportamiento principal
         addBehaviour(new ResponderSolicitudesBehaviour());
+        availabilitySubscriptions = new AvailabilitySubscriptionResponder();
+        addBehaviour(availabilitySubscriptions);
 
         // Agregar comportamiento para revisar si los profesores han terminado
         //addBehaviour(new ProfessorMonitorBehaviour(this));
@@ -115,20 +135,119 @@ public class AgenteSala extends Agent implements SalaDataInterface {
             capacidad = ((Number) salaJson.get("Capacidad")).intValue();
             turno = ((Number) salaJson.get("Turno")).intValue();
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Error leyendo los datos de la sala " + getLocalName(), e);
         }
     }
 
     private void initializeSchedule() {
         // Inicializar horario con bloques vacíos
-        horarioOcupado = new HashMap<>();
-        for (Day dia : Day.values()) {
-            List<AsignacionSala> asignaciones = new ArrayList<>();
-            for (int i = 0; i < Commons.MAX_BLOQUE_DIURNO; i++) {
-                asignaciones.add(null);
+        horarioOcupado = new ClassroomOccupancy();
+    }
+
+    /**
+     * Publica una nueva version inmutable del estado. Solo se llama al iniciar y cuando
+     * confirmarAsignacion modifica la ocupacion.
+     */
+    private void publishSnapshot() {
+        snapshot = ClassroomSnapshot.of(stateVersion, codigo, campus, capacidad, horarioOcupado);
+    }
+
+    /**
+     * Contenido codificado del PROPOSE para la version actual. Solo se vuelve a
+     * codificar cuando una asignacion publica un snapshot nuevo.
+     */
+    private byte[] getProposePayload(ClassroomSnapshot current) throws IOException {
+        if (proposePayload == null || proposePayloadVersion != current.getVersion()) {
+            proposePayload = CodecRegistry.encode(CodecRegistry.CLASSROOM_AVAILABILITY, current.getAvailability());
+            proposePayloadVersion = current.getVersion();
+        }
+        return proposePayload;
+    }
+
+    /**
+     * Contenido del PROPOSE para un CFP concreto. Si el CFP trae los datos de la asignatura
+     * se aplican las reglas duras de ConstraintEvaluator y solo se ofrecen los bloques que el
+     * profesor podria aceptar. Retorna null si no hay nada que ofrecer.
+     */
+    private byte[] getProposePayload(ClassroomSnapshot current, SolicitudInfo solicitud) throws IOException {
+        if (solicitud == null) {
+            // CFP sin formato conocido: se ofrece todo lo libre
+            return current.getAvailability() != null ? getProposePayload(current) : null;
+        }
+
+        if (!ConstraintEvaluator.isRoomTypeAllowed(capacidad, solicitud.getVacantes())) {
+            return null;
+        }
+
+        if (solicitud.requestsScoring()) {
+            return getScoredPayload(current, solicitud);
+        }
+
+        int key = (solicitud.getNivel() % 2 == 1 ? 2 : 0) | (solicitud.getBloquesPendientes() % 2 == 0 ? 1 : 0);
+        if (filteredPayloads[key] == null || filteredPayloadVersions[key] != current.getVersion()) {
+            long allowed = cfpBlocks(current.getFreeMask(), capacidad, solicitud);
+            filteredPayloads[key] = allowed == 0 ? NO_BLOCKS : CodecRegistry.encode(
+                    CodecRegistry.CLASSROOM_AVAILABILITY,
+                    new ClassroomAvailability(codigo, campus, capacidad, current.getVersion(),
+                            SlotGrid.toBlockLists(allowed)));
+            filteredPayloadVersions[key] = current.getVersion();
+        }
+
+        return filteredPayloads[key] == NO_BLOCKS ? null : filteredPayloads[key];
+    }
+
+    /**
+     * Respuesta combinada a un CFP por lotes: bloques libres y que asignaturas del lote caben
+     * en la sala. Si ninguna cabe se responde igual, con eligibleSubjects en 0: el profesor
+     * espera esta respuesta para cada sala del lote y un REFUSE no le dice a que lote pertenece.
+     */
+    private byte[] getBatchPayload(ClassroomSnapshot current, List<SolicitudInfo> solicitudes) throws IOException {
+        if (solicitudes == null) {
+            return null;
+        }
+
+        long eligible = 0L;
+        for (int i = 0; i < solicitudes.size() && i < Long.SIZE; i++) {
+            SolicitudInfo solicitud = solicitudes.get(i);
+            if (cfpBlocks(current.getFreeMask(), capacidad, solicitud) != 0) {
+                eligible |= 1L << i;
             }
-            horarioOcupado.put(dia, asignaciones);
         }
+
+        return CodecRegistry.encode(CodecRegistry.CLASSROOM_AVAILABILITY_BATCH,
+                new BatchAvailability(codigo, campus, capacidad, current.getVersion(),
+                        current.getFreeMask(), eligible));
+    }
+
+    /**
+     * Disponibilidad filtrada con la satisfaccion de cada bloque ya calculada. Depende de la
+     * asignatura, asi que no se cachea: el costo de evaluar queda repartido entre las salas.
+     */
+    private byte[] getScoredPayload(ClassroomSnapshot current, SolicitudInfo solicitud) throws IOException {
+        long allowed = cfpBlocks(current.getFreeMask(), capacidad, solicitud);
+        if (allowed == 0) {
+            return null;
+        }
+
+        // Campus y continuidad no dependen del bloque: se calculan una vez por solicitud
+        TimetablingEvaluator.ScheduleTerms terms = TimetablingEvaluator.scheduleTerms(
+                campus, solicitud.getCampus(), solicitud.getBloquesAsignatura(), solicitud.getTipoContrato());
+        byte[] scores = new byte[SlotGrid.SLOTS];
+        for (long bits = allowed; bits != 0; bits &= bits - 1) {
+            int slot = Long.numberOfTrailingZeros(bits);
+            scores[slot] = (byte) TimetablingEvaluator.calculateSatisfaction(
+                    capacidad,
+                    solicitud.getVacantes(),
+                    solicitud.getNivel(),
+                    SlotGrid.blockOf(slot),
+                    solicitud.getActividad(),
+                    terms);
+        }
+
+        return CodecRegistry.encode(
+                CodecRegistry.CLASSROOM_AVAILABILITY,
+                new ClassroomAvailability(codigo, campus, capacidad, current.getVersion(),
+                        SlotGrid.toBlockLists(allowed), scores));
     }
 
     private void registrarEnDF() {
@@ -146,15 +265,69 @@ public class AgenteSala extends Agent implements SalaDataInterface {
             DFService.register(this, dfd);
             isRegistered = true;
         } catch (FIPAException fe) {
-            fe.printStackTrace();
+            Log.error("Error registrando sala " + codigo + " en el DF", fe);
+        }
+    }
+
+    /**
+     * Suscripciones FIPA-subscribe a la disponibilidad de la sala. El AGREE lleva el estado
+     * completo y cada asignacion confirmada se notifica como delta con la nueva version.
+     */
+    private class AvailabilitySubscriptionResponder extends SubscriptionResponder {
+        private static final long serialVersionUID = 1L;
+
+        AvailabilitySubscriptionResponder() {
+            super(AgenteSala.this, SubscriptionResponder.createMessageTemplate(ACLMessage.SUBSCRIBE));
+        }
+
+        @Override
+        protected ACLMessage handleSubscription(ACLMessage subscription)
+                throws NotUnderstoodException, RefuseException {
+            messageLogger.logMessageReceived(getLocalName(), subscription);
+            createSubscription(subscription);
+
+            ClassroomSnapshot current = snapshot;
+            ACLMessage agree = subscription.createReply();
+            agree.setPerformative(ACLMessage.AGREE);
+            try {
+                CodecRegistry.setContent(agree, CodecRegistry.AVAILABILITY_UPDATE,
+                        AvailabilityUpdate.full(codigo, campus, capacidad,
+                                current.getVersion(), current.getFreeMask()));
+            } catch (IOException e) {
+                throw new RefuseException("Cannot encode availability: " + e.getMessage());
+            }
+
+            messageLogger.logMessageSent(getLocalName(), agree);
+            return agree;
+        }
+    }
+
+    private void notifySubscribers(long takenMask) throws IOException {
+        List<?> subscriptions = availabilitySubscriptions.getSubscriptions();
+        if (subscriptions.isEmpty() || takenMask == 0) {
+            return;
+        }
+
+        byte[] payload = CodecRegistry.encode(CodecRegistry.AVAILABILITY_UPDATE,
+                AvailabilityUpdate.delta(codigo, campus, capacidad, stateVersion, takenMask));
+        for (Object o : subscriptions) {
+            ACLMessage notification = new ACLMessage(ACLMessage.INFORM);
+            CodecRegistry.setEncodedContent(notification, CodecRegistry.AVAILABILITY_UPDATE, payload);
+            ((SubscriptionResponder.Subscription) o).notify(notification);
         }
     }
 
     private class ResponderSolicitudesBehaviour extends CyclicBehaviour {
         public void action() {
             MessageTemplate mt = MessageTemplate.or(
-                    MessageTemplate.MatchPerformative(ACLMessage.CFP),
-                    MessageTemplate.MatchPerformative(ACLMessage.ACCEPT_PROPOSAL)
+                    MessageTemplate.or(
+                            MessageTemplate.MatchPerformative(ACLMessage.CFP),
+                            MessageTemplate.MatchPerformative(ACLMessage.ACCEPT_PROPOSAL)
+                    ),
+                    MessageTemplate.and(
+                            MessageTemplate.MatchPerformative(ACLMessage.REQUEST),
+                            MessageTemplate.MatchOntology(CodecRegistry.GRANT_REQUEST)
+                    )
             );
 
             ACLMessage msg = receive(mt);
@@ -167,43 +340,33 @@ public class AgenteSala extends Agent implements SalaDataInterface {
                     case ACLMessage.ACCEPT_PROPOSAL:
                         confirmarAsignacion(msg);
                         break;
+                    case ACLMessage.REQUEST:
+                        otorgarBloques(msg);
+                        break;
                 }
             } else {
                 block();
             }
         }
 
-        private Map<String, List<Integer>> getAvailableBlocks() {
-            Map<String, List<Integer>> availableBlocks = new HashMap<>();
-            for (Day dia : Day.values()) {
-                List<AsignacionSala> asignaciones = horarioOcupado.get(dia);
-                List<Integer> freeBlocks = new ArrayList<>();
-                for (int bloque = 0; bloque < Commons.MAX_BLOQUE_DIURNO; bloque++) {
-                    if (asignaciones.get(bloque) == null) {
-                        freeBlocks.add(bloque + 1);
-                    }
-                }
-                if (!freeBlocks.isEmpty()) {
-                    availableBlocks.put(dia.toString(), freeBlocks);
-                }
-            }
-            return availableBlocks;
-        }
-
         private void procesarSolicitud(ACLMessage msg) {
             try {
-                Map<String, List<Integer>> availableBlocks = getAvailableBlocks();
-                if (!availableBlocks.isEmpty()) {
-                    ClassroomAvailability availability = new ClassroomAvailability(
-                            codigo,
-                            campus,
-                            capacidad,
-                            availableBlocks
-                    );
+                ClassroomSnapshot current = snapshot;
+                String ontology;
+                byte[] payload;
+                if (CodecRegistry.CLASSROOM_AVAILABILITY_BATCH.equals(msg.getOntology())) {
+                    ontology = CodecRegistry.CLASSROOM_AVAILABILITY_BATCH;
+                    payload = getBatchPayload(current, SolicitudInfo.parseBatch(msg.getContent()));
+                } else {
+                    ontology = CodecRegistry.CLASSROOM_AVAILABILITY;
+                    payload = getProposePayload(current, SolicitudInfo.parse(msg.getContent()));
+                }
 
+                if (payload != null) {
                     ACLMessage reply = msg.createReply();
                     reply.setPerformative(ACLMessage.PROPOSE);
-                    reply.setContentObject(availability);
+                    // Se reutilizan los bytes codificados de esta version
+                    CodecRegistry.setEncodedContent(reply, ontology, payload);
 
                     rttLogger.recordMessageSent(
                             myAgent.getLocalName(),
@@ -232,41 +395,43 @@ public class AgenteSala extends Agent implements SalaDataInterface {
                     send(reply);
                 }
             } catch (Exception e) {
-                System.err.println("Error processing request in classroom " + codigo + ": " + e.getMessage());
-                e.printStackTrace();
+                Log.error("Error processing request in classroom " + codigo + ": " + e.getMessage(), e);
             }
         }
 
         private void confirmarAsignacion(ACLMessage msg) {
             try {
-                BatchAssignmentRequest batchRequest = (BatchAssignmentRequest) msg.getContentObject();
+                BatchAssignmentRequest batchRequest = CodecRegistry.decode(msg, BatchAssignmentRequest.class);
                 List<BatchAssignmentConfirmation.ConfirmedAssignment> confirmedAssignments = new ArrayList<>();
+                long occupiedBefore = horarioOcupado.getOccupiedMask();
 
-                System.out.println("\n[DEBUG] Room " + codigo + " processing assignment request");
+                // Se consulta una vez por mensaje; sin DEBUG no se arma ningun texto
+                boolean debug = Log.isDebugEnabled();
+                if (debug) {
+                    Log.debug("[DEBUG] Room " + codigo + " processing assignment request");
+                }
 
                 for (BatchAssignmentRequest.AssignmentRequest request : batchRequest.getAssignments()) {
                     if (!request.getClassroomCode().equals(codigo)) {
-                        System.out.println("[DEBUG] Skipping request for different room: " + request.getClassroomCode());
+                        if (debug) {
+                            Log.debug("[DEBUG] Skipping request for different room: " + request.getClassroomCode());
+                        }
                         continue;
                     }
 
-                    int bloque = request.getBlock() - 1;
-                    List<AsignacionSala> asignaciones = horarioOcupado.get(request.getDay());
-
-                    System.out.println("[DEBUG] Processing request for " + request.getSubjectName() +
-                            " Day: " + request.getDay() + " Block: " + request.getBlock());
-
-                    if (asignaciones != null && bloque >= 0 && bloque < asignaciones.size() &&
-                            asignaciones.get(bloque) == null) {
+                    if (debug) {
+                        Log.debug("[DEBUG] Processing request for " + request.getSubjectName() +
+                                " Day: " + request.getDay() + " Block: " + request.getBlock());
+                    }
 
-                        float capacidadFraccion = (float) request.getVacancy() / capacidad;
-                        AsignacionSala nuevaAsignacion = new AsignacionSala(
-                                request.getSubjectName(),
-                                request.getSatisfaction(),
-                                capacidadFraccion,
-                                request.getProfName()
-                        );
-                        asignaciones.set(bloque, nuevaAsignacion);
+                    float capacidadFraccion = (float) request.getVacancy() / capacidad;
+                    if (request.getDay() != null && horarioOcupado.assign(
+                            request.getDay(),
+                            request.getBlock(),
+                            request.getSubjectName(),
+                            request.getProfName(),
+                            request.getSatisfaction(),
+                            capacidadFraccion)) {
 
                         confirmedAssignments.add(new BatchAssignmentConfirmation.ConfirmedAssignment(
                                 request.getDay(),
@@ -275,42 +440,184 @@ public class AgenteSala extends Agent implements SalaDataInterface {
                                 request.getSatisfaction()
                         ));
 
-                        System.out.println("[DEBUG] Successfully assigned " + request.getSubjectName() +
-                                " to block " + request.getBlock() + " on " + request.getDay());
-                    } else {
-                        System.out.println("[DEBUG] Could not assign - asignaciones null? " + (asignaciones == null) +
-                                " valid block? " + (bloque >= 0 && bloque < (asignaciones != null ? asignaciones.size() : 0)) +
-                                " block empty? " + (asignaciones != null && bloque >= 0 &&
-                                bloque < asignaciones.size() && asignaciones.get(bloque) == null));
+                        if (debug) {
+                            Log.debug("[DEBUG] Successfully assigned " + request.getSubjectName() +
+                                    " to block " + request.getBlock() + " on " + request.getDay());
+                        }
+                    } else if (debug) {
+                        Log.debug("[DEBUG] Could not assign - day null? " + (request.getDay() == null) +
+                                " valid block? " + SlotGrid.isValidBlock(request.getBlock()) +
+                                " block empty? " + (request.getDay() != null &&
+                                horarioOcupado.isFree(request.getDay(), request.getBlock())));
                     }
                 }
 
                 if (!confirmedAssignments.isEmpty()) {
-                    verifyAssignments(confirmedAssignments);
+                    enviarConfirmacion(msg, confirmedAssignments, occupiedBefore);
+                } else {
+                    // Otro profesor tomo esos bloques antes: se responde igual, sin cambiar la
+                    // version, para que el profesor concilie sin esperar el timeout
                     ACLMessage confirm = msg.createReply();
                     confirm.setPerformative(ACLMessage.INFORM);
-                    confirm.setContentObject(new BatchAssignmentConfirmation(confirmedAssignments));
-
-                    messageLogger.logMessageSent(myAgent.getLocalName(), confirm);
+                    CodecRegistry.setContent(confirm, CodecRegistry.ASSIGNMENT_CONFIRMATION,
+                            new BatchAssignmentConfirmation(confirmedAssignments));
+                    messageLogger.logMessageSent(getLocalName(), confirm);
                     send(confirm);
                 }
 
             } catch (Exception e) {
-                System.err.println("Error procesando confirmación en sala " + codigo + ": " + e.getMessage());
-                e.printStackTrace();
+                Log.error("Error procesando confirmación en sala " + codigo + ": " + e.getMessage(), e);
             }
         }
     }
 
+    /**
+     * Publica la nueva version, confirma al profesor y avisa a los suscriptores.
+     */
+    private void enviarConfirmacion(ACLMessage msg,
+                                    List<BatchAssignmentConfirmation.ConfirmedAssignment> confirmedAssignments,
+                                    long occupiedBefore) throws IOException {
+        verifyAssignments(confirmedAssignments);
+        stateVersion++;
+        publishSnapshot();
+        ACLMessage confirm = msg.createReply();
+        confirm.setPerformative(ACLMessage.INFORM);
+        CodecRegistry.setContent(confirm, CodecRegistry.ASSIGNMENT_CONFIRMATION,
+                new BatchAssignmentConfirmation(confirmedAssignments));
+
+        messageLogger.logMessageSent(getLocalName(), confirm);
+        send(confirm);
+
+        notifySubscribers(horarioOcupado.getOccupiedMask() & ~occupiedBefore);
+    }
+
+    /**
+     * Protocolo request/grant: elige los bloques libres con mejor satisfaccion que respeten
+     * el horario del profesor y las reglas duras (los bloques que se ofrecerian en un CFP,
+     * campus y huecos), los reserva y responde con la asignacion (INFORM) o con REFUSE si no
+     * hay nada que otorgar.
+     */
+    private void otorgarBloques(ACLMessage msg) {
+        try {
+            GrantRequest request = CodecRegistry.decode(msg, GrantRequest.class);
+            long candidates = request != null ? grantBlocks(horarioOcupado.getFreeMask(), capacidad, request) : 0L;
+
+            if (candidates == 0) {
+                rechazarSolicitud(msg);
+                return;
+            }
+
+            // Bloques del profesor en un campus distinto al de esta sala, si la asignatura es de otro
+            RoomCatalog catalog = RoomCatalog.get();
+            int roomCampusId = catalog.campusIdOf(campus);
+            boolean otherCampus = roomCampusId != catalog.campusIdOf(request.getCampus());
+            long otherCampusSlots = request.getProfessorAssigned() & ~request.getCampusMask(roomCampusId);
+
+            // Puntaje por slot; se ordena por puntaje descendente y slot ascendente
+            long[] ranked = new long[Long.bitCount(candidates)];
+            int count = 0;
+            TimetablingEvaluator.ScheduleTerms terms = TimetablingEvaluator.scheduleTerms(
+                    campus, request.getCampus(), request.getSubjectBlocks(), request.getTipoContrato());
+            for (long bits = candidates; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                int block = SlotGrid.blockOf(slot);
+                int score = TimetablingEvaluator.calculateSatisfaction(
+                        capacidad,
+                        request.getVacancy(),
+                        request.getNivel(),
+                        block,
+                        request.getActividad(),
+                        terms);
+                if (otherCampus) {
+                    Day day = SlotGrid.dayOf(slot);
+                    if (!HardConstraints.allowsOtherCampus(
+                            (request.getCampusTransitionDays() & (1 << day.ordinal())) != 0,
+                            SlotGrid.dayBits(otherCampusSlots, day), 1 << (block - 1))) {
+                        continue;
+                    }
+                }
+                ranked[count++] = ((long) (Byte.MAX_VALUE - score) << 8) | slot;
+            }
+            Arrays.sort(ranked, 0, count);
+
+            long occupiedBefore = horarioOcupado.getOccupiedMask();
+            float capacidadFraccion = (float) request.getVacancy() / capacidad;
+            int[] perDay = new int[SlotGrid.DAYS];
+            List<BatchAssignmentConfirmation.ConfirmedAssignment> granted = new ArrayList<>();
+            long grantedSlots = 0L;
+            for (int k = 0; k < count; k++) {
+                if (granted.size() >= request.getPendingBlocks()) {
+                    break;
+                }
+
+                long entry = ranked[k];
+                int slot = (int) (entry & 0xFF);
+                int score = Byte.MAX_VALUE - (int) (entry >>> 8);
+                Day day = SlotGrid.dayOf(slot);
+                int block = SlotGrid.blockOf(slot);
+                if (perDay[day.ordinal()] >= request.getMaxBlocksPerDay()) {
+                    continue;
+                }
+
+                // Huecos con los bloques del profesor y los ya otorgados ese dia
+                if (!HardConstraints.allowsGaps(request.getTipoContrato(),
+                        SlotGrid.dayBits(request.getProfessorAssigned(), day),
+                        SlotGrid.dayBits(grantedSlots | (1L << slot), day))) {
+                    continue;
+                }
+
+                if (horarioOcupado.assign(day, block, request.getSubjectName(), request.getProfName(),
+                        score, capacidadFraccion)) {
+                    perDay[day.ordinal()]++;
+                    grantedSlots |= 1L << slot;
+                    granted.add(new BatchAssignmentConfirmation.ConfirmedAssignment(day, block, codigo, score));
+                }
+            }
+
+            if (granted.isEmpty()) {
+                rechazarSolicitud(msg);
+                return;
+            }
+            enviarConfirmacion(msg, granted, occupiedBefore);
+        } catch (Exception e) {
+            Log.error("Error otorgando bloques en sala " + codigo + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Bloques que se ofrecen a un CFP por asignatura o por lotes.
+     */
+    static long cfpBlocks(long freeMask, int capacidad, SolicitudInfo solicitud) {
+        return ConstraintEvaluator.offerableBlocks(freeMask, capacidad, solicitud.getVacantes(),
+                solicitud.getNivel(), solicitud.getBloquesPendientes());
+    }
+
+    /**
+     * Candidatos a otorgar: los mismos bloques de cfpBlocks, sin los ocupados por el profesor.
+     */
+    static long grantBlocks(long freeMask, int capacidad, GrantRequest request) {
+        if (request.getPendingBlocks() <= 0) {
+            return 0L;
+        }
+        return ConstraintEvaluator.offerableBlocks(freeMask & ~request.getProfessorOccupied(), capacidad,
+                request.getVacancy(), request.getNivel(), request.getPendingBlocks());
+    }
+
+    private void rechazarSolicitud(ACLMessage msg) {
+        ACLMessage refuse = msg.createReply();
+        refuse.setPerformative(ACLMessage.REFUSE);
+        refuse.setContent("NO AVAILABLE BLOCKS");
+        messageLogger.logMessageSent(getLocalName(), refuse);
+        send(refuse);
+    }
+
     private void verifyAssignments(List<BatchAssignmentConfirmation.ConfirmedAssignment> assignments) {
         for (BatchAssignmentConfirmation.ConfirmedAssignment assignment : assignments) {
             Day day = assignment.getDay();
-            int block = assignment.getBlock() - 1;
 
-            List<AsignacionSala> dayAssignments = horarioOcupado.get(day);
-            if (dayAssignments == null || dayAssignments.get(block) == null) {
-                System.err.println("WARNING: Assignment verification failed for room " +
-                        codigo + " on " + day + " block " + assignment.getBlock());
+            if (day == null || horarioOcupado.isFree(day, assignment.getBlock())) {
+                Log.warn("Assignment verification failed for room %s on %s block %d",
+                        codigo, day, assignment.getBlock());
             }
         }
     }
@@ -325,35 +632,38 @@ public class AgenteSala extends Agent implements SalaDataInterface {
     
                 if (result != null && result.length > 0) {
                     DFService.deregister(this);
-                    System.out.println("Sala " + codigo + " eliminada del DF");
+                    Log.debug("Sala %s eliminada del DF", codigo);
                 }
                 isRegistered = false;
             }
     
             // Asegurarse de guardar el estado final en JSON
-            System.out.println("Guardando estado final de sala " + codigo);
+            Log.debug("Guardando estado final de sala %s", codigo);
             //SalaHorarioJSON.getInstance().agregarHorarioSala(codigo, campus, horarioOcupado);
     
         } catch (Exception e) {
-            System.err.println("Error durante cleanup de sala " + codigo + ": " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error durante cleanup de sala " + codigo, e);
         }
     }
 
     //create a getter for horarioOcupado
+    @Override
     public Map<Day, List<AsignacionSala>> getHorarioOcupado() {
-        // Return a defensive copy to avoid concurrent modification issues
-        Map<Day, List<AsignacionSala>> copy = new HashMap<>();
-        for (Map.Entry<Day, List<AsignacionSala>> entry : horarioOcupado.entrySet()) {
-            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
-        }
-        return copy;
+        // El snapshot es inmutable, se puede compartir sin copiar
+        ClassroomSnapshot current = snapshot;
+        return current != null ? current.getHorario() : Collections.emptyMap();
+    }
+
+    @Override
+    public long getVersion() {
+        ClassroomSnapshot current = snapshot;
+        return current != null ? current.getVersion() : 0L;
     }
 
 
     @Override
     protected void takeDown() {
         cleanup();
-        System.out.println("Sala " + codigo + " finalizada");
+        Log.debug("Sala %s finalizada", codigo);
     }
 }
@@ -1,6 +1,7 @@
 package agentes;
 
 import aplicacion.IterativeAplicacion;
+import constants.NegotiationConfig;
 import jade.core.Agent;
 import jade.core.Runtime;
 import jade.core.behaviours.CyclicBehaviour;
@@ -15,6 +16,7 @@ import jade.wrapper.AgentController;
 import jade.wrapper.StaleProxyException;
 import json_stuff.ProfesorHorarioJSON;
 import json_stuff.SalaHorarioJSON;
+import logging.Log;
 import performance.RTTLogger;
 
 import java.util.HashMap;
@@ -77,8 +79,14 @@ public class AgenteSupervisor extends Agent {
     }
 
     private class ShutdownBehaviour extends CyclicBehaviour {
+        // Con la ventana de negociacion hay una cadena de profesores por posicion y cada
+        // una envia su propio NULL_PROF al terminar
+        private int pendingChains;
+
         public ShutdownBehaviour(Agent a) {
             super(a);
+            int professors = profesoresControllers != null ? profesoresControllers.size() : 1;
+            pendingChains = Math.max(1, Math.min(NegotiationConfig.PROFESSOR_WINDOW, professors));
         }
 
         @Override
@@ -87,6 +95,11 @@ public class AgenteSupervisor extends Agent {
             ACLMessage msg = myAgent.receive(template);
 
             if (msg != null) {
+                pendingChains--;
+                if (pendingChains > 0) {
+                    Log.info("[Supervisor] Received shutdown message, waiting for %d more.", pendingChains);
+                    return;
+                }
                 System.out.println("[Supervisor] Received shutdown message.");
                 finishSystem();
             } else {
@@ -11,6 +11,7 @@ import jade.wrapper.AgentController;
 import jade.wrapper.StaleProxyException;
 import json_stuff.JSONHelper;
 import json_stuff.JSONProcessor;
+import objetos.RoomCatalog;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
@@ -40,6 +41,7 @@ public class Aplicacion {
             // Load data from JSON files
             JSONArray profesoresJson = JSONHelper.parseAsArray("30profs.json");
             JSONArray salasJson = JSONHelper.parseAsArray("inputOfSala.json");
+            RoomCatalog.install(salasJson);
 
             // Preparar paralelos, actualizando su contenido en memoria.
             profesoresJson = JSONProcessor.prepararParalelos(profesoresJson);
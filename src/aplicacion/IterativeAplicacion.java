@@ -13,6 +13,7 @@ import json_stuff.JSONHelper;
 import json_stuff.JSONProcessor;
 import json_stuff.ProfesorHorarioJSON;
 import json_stuff.SalaHorarioJSON;
+import objetos.RoomCatalog;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import performance.AgentMessageLogger;
@@ -125,6 +126,7 @@ public class IterativeAplicacion {
             // Load and process data
             JSONArray professorJson = JSONHelper.parseAsArray(profesoresPath);
             JSONArray roomJson = JSONHelper.parseAsArray(salasPath);
+            RoomCatalog.install(roomJson);
             professorJson = JSONProcessor.prepararParalelos(professorJson);
 
             //CentralizedMonitor.initialize(scenarioName, iteration);
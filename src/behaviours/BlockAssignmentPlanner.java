@@ -0,0 +1,73 @@
+package behaviours;
+
+import objetos.helper.BatchProposal;
+import objetos.helper.SlotGrid;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Elige que bloques pedir en una ronda mirando todas las propuestas a la vez: toma los de
+ * mayor satisfaccion (BatchProposal.getBlockScore) sin importar la sala, en vez de llenar
+ * con la primera sala en el orden en que itera sus dias. A igual puntaje gana la sala mejor
+ * ubicada por ConstraintEvaluator y despues el slot mas temprano.
+ */
+final class BlockAssignmentPlanner {
+    // Bloques de una misma asignatura por dia en una ronda
+    static final int MAX_BLOCKS_PER_DAY = 2;
+
+    private BlockAssignmentPlanner() {
+    }
+
+    /**
+     * @param proposals propuestas en el orden de ConstraintEvaluator
+     * @param occupied bloques ya ocupados del profesor (mascara SlotGrid)
+     * @param dayCounts bloques ya confirmados en la ronda por ordinal de dia
+     * @param maxBlocks bloques que faltan por asignar
+     * @return por cada propuesta (mismo indice), la mascara SlotGrid de los bloques a pedirle
+     */
+    static long[] plan(List<BatchProposal> proposals, long occupied, int[] dayCounts, int maxBlocks) {
+        long[] picks = new long[proposals.size()];
+        if (maxBlocks <= 0) {
+            return picks;
+        }
+
+        int candidateCount = 0;
+        for (BatchProposal proposal : proposals) {
+            candidateCount += Long.bitCount(proposal.getSlotMask() & ~occupied);
+        }
+
+        // Clave: puntaje descendente, posicion de la propuesta y slot ascendentes
+        long[] candidates = new long[candidateCount];
+        int n = 0;
+        for (int i = 0; i < proposals.size(); i++) {
+            BatchProposal proposal = proposals.get(i);
+            for (long bits = proposal.getSlotMask() & ~occupied; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                candidates[n++] = ((long) (Byte.MAX_VALUE - proposal.getBlockScore(slot)) << 40) |
+                        ((long) i << 8) | slot;
+            }
+        }
+        Arrays.sort(candidates);
+
+        int[] perDay = dayCounts.clone();
+        long taken = occupied;
+        int planned = 0;
+        for (long candidate : candidates) {
+            int slot = (int) (candidate & 0xFF);
+            long bit = 1L << slot;
+            int day = slot / SlotGrid.BLOCKS_PER_DAY;
+            if ((taken & bit) != 0 || perDay[day] >= MAX_BLOCKS_PER_DAY) {
+                continue;
+            }
+
+            picks[(int) ((candidate >>> 8) & 0xFFFFFFFFL)] |= bit;
+            taken |= bit;
+            perDay[day]++;
+            if (++planned >= maxBlocks) {
+                break;
+            }
+        }
+        return picks;
+    }
+}
@@ -4,8 +4,10 @@ import agentes.AgenteProfesor;
 import jade.core.behaviours.CyclicBehaviour;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
+import logging.Log;
 import objetos.ClassroomAvailability;
 import objetos.helper.BatchProposal;
+import objetos.helper.CodecRegistry;
 import performance.RTTLogger;
 
 import java.util.Queue;
@@ -54,9 +56,9 @@ public class MessageCollectorBehaviour extends CyclicBehaviour {
                 try {
                     logRequest(reply, true);
 
-                    ClassroomAvailability sala = (ClassroomAvailability) reply.getContentObject();
+                    ClassroomAvailability sala = CodecRegistry.decode(reply, ClassroomAvailability.class);
                     if (sala == null) {
-                        System.out.println("Null classroom availability received");
+                        Log.debug("Null classroom availability received");
                         return;
                     }
 
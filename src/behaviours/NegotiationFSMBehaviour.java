@@ -2,24 +2,35 @@ package behaviours;
 
 import agentes.AgenteProfesor;
 import agentes.AgenteSala;
+import jade.core.AID;
+import constants.NegotiationConfig;
 import constants.enums.Day;
 import df.DFCache;
+import df.RoomCandidateIndex;
 import evaluators.ConstraintEvaluator;
+import interfaces.NegotiationInterface;
 import jade.core.behaviours.FSMBehaviour;
 import jade.core.behaviours.OneShotBehaviour;
+import jade.core.behaviours.SimpleBehaviour;
 import jade.domain.FIPAAgentManagement.DFAgentDescription;
-import jade.domain.FIPAAgentManagement.Property;
-import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPANames;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
-import jade.lang.acl.UnreadableException;
+import jade.proto.SubscriptionInitiator;
+import logging.Log;
 import objetos.Asignatura;
 import objetos.AssignationData;
+import objetos.AvailabilityReplica;
+import objetos.AvailabilityUpdate;
+import objetos.BatchAvailability;
 import objetos.ClassroomAvailability;
 import objetos.helper.BatchAssignmentConfirmation;
 import objetos.helper.BatchAssignmentRequest;
 import objetos.helper.BatchProposal;
+import objetos.helper.CodecRegistry;
+import objetos.helper.SlotGrid;
+import objetos.helper.SolicitudInfo;
+import performance.AdaptiveTimeout;
 import performance.AgentMessageLogger;
 import performance.RTTLogger;
 
@@ -33,25 +44,28 @@ import java.util.concurrent.atomic.AtomicInteger;
  * Combines the functionality of NegotiationStateBehaviour and MessageCollectorBehaviour
  * into a single state machine.
  */
-public class NegotiationFSMBehaviour extends FSMBehaviour {
+public class NegotiationFSMBehaviour extends FSMBehaviour implements NegotiationInterface {
     // State names
     private static final String SETUP = "SETUP";
     private static final String COLLECTING = "COLLECTING";
     private static final String EVALUATING = "EVALUATING";
+    private static final String AWAITING_CONFIRMATION = "AWAITING_CONFIRMATION";
     private static final String FINISHED = "FINISHED";
 
     // Constants
     private static final int MAX_RETRIES = 3;
     private static final long TIMEOUT_PROPUESTA = 5000; // 5 seconds
+    // La sala reserva los bloques antes de responder al ACCEPT: un INFORM que llega tarde se
+    // pierde y deja bloques ocupados que el profesor no registro, asi que este plazo no se adapta
+    private static final long TIMEOUT_CONFIRMACION = TIMEOUT_PROPUESTA;
     private static final long BACKOFF_TIME_OFFSET = 1000; // 1 second
-    private static final int MEETING_ROOM_THRESHOLD = 10;
 
     // State tracking
     private final AgenteProfesor profesor;
     private final ConcurrentLinkedQueue<BatchProposal> batchProposals;
     private final AssignationData assignationData;
     private final ConstraintEvaluator evaluator;
-    private final Map<String, Boolean> quickRejectCache;
+    private final AwaitingConfirmationState confirmationState;
 
     // Negotiation tracking
     private int bloquesPendientes = 0;
@@ -62,8 +76,28 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
     private long negotiationStartTime;
     private final Map<String, Long> subjectNegotiationTimes = new HashMap<>();
 
+    // CFP por lotes: disponibilidad por sala para las asignaturas siguientes
+    private final PrefetchedBatch prefetched = new PrefetchedBatch();
+    private boolean servedLocally = false;
+    // La ronda actual cuenta como respuestas las del lote (propio o adelantado en EVALUATING)
+    private boolean roundWaitsForPrefetch = false;
+
+    // Suscripcion a la disponibilidad de las salas y replica local
+    private final AvailabilityReplica replica = new AvailabilityReplica();
+    private final List<AID> subscribedRooms = new ArrayList<>();
+    private AvailabilitySubscription availabilitySubscription;
+
+    // Salas contactadas por tandas en los CFP por asignatura
+    private final RoomFanOut fanOut = new RoomFanOut(NegotiationConfig.FANOUT_K);
+    // Conversaciones de los CFP individuales de la ronda actual
+    private final Set<String> roundConversations = new HashSet<>();
+    // Ultima sala que confirmo bloques de la asignatura actual
+    private AID lastGrantingRoom;
+
     // Performance logging
     private RTTLogger rttLogger;
+    private final AdaptiveTimeout responseTimeout = new AdaptiveTimeout(
+            NegotiationConfig.TIMEOUT_RTT_FACTOR, NegotiationConfig.TIMEOUT_FLOOR_MS, TIMEOUT_PROPUESTA);
     private AgentMessageLogger messageLogger = AgentMessageLogger.getInstance();
 
     public NegotiationFSMBehaviour(AgenteProfesor profesor) {
@@ -71,25 +105,40 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
         this.batchProposals = new ConcurrentLinkedQueue<>();
         this.assignationData = new AssignationData();
         this.evaluator = new ConstraintEvaluator(profesor);
-        this.quickRejectCache = new HashMap<>();
         this.rttLogger = RTTLogger.getInstance();
 
         // Register states
         registerFirstState(new SetupState(), SETUP);
         registerState(new CollectingState(), COLLECTING);
         registerState(new EvaluatingState(), EVALUATING);
+        confirmationState = new AwaitingConfirmationState();
+        registerState(confirmationState, AWAITING_CONFIRMATION);
         registerLastState(new FinishedState(), FINISHED);
 
         // Register transitions
-        registerDefaultTransition(SETUP, COLLECTING);
+        // COLLECTING se reinicia en cada entrada porque ahora espera hasta cerrar la ronda
+        String[] resetCollecting = {COLLECTING};
+        registerDefaultTransition(SETUP, COLLECTING, resetCollecting);
         registerTransition(COLLECTING, EVALUATING, 0);
         registerTransition(COLLECTING, SETUP, 1);
         registerTransition(EVALUATING, SETUP, 0);
-        registerTransition(EVALUATING, COLLECTING, 1);
+        registerTransition(EVALUATING, COLLECTING, 1, resetCollecting);
         registerTransition(EVALUATING, FINISHED, 2);
+        registerTransition(EVALUATING, AWAITING_CONFIRMATION, 3);
+        registerTransition(AWAITING_CONFIRMATION, SETUP, 0);
+        registerTransition(AWAITING_CONFIRMATION, COLLECTING, 1, resetCollecting);
+        registerTransition(AWAITING_CONFIRMATION, FINISHED, 2);
         registerTransition(SETUP, FINISHED, 1);
     }
 
+    @Override
+    public void onStart() {
+        super.onStart();
+        if (NegotiationConfig.SUBSCRIBE_AVAILABILITY) {
+            subscribeToRooms();
+        }
+    }
+
     /**
      * Reset counter between state transitions
      */
@@ -108,10 +157,10 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
         public void action() {
             receivedResponseCount.set(0);
 
-            System.out.println("Entering SETUP state for " + profesor.getNombre());
+            Log.debug("Entering SETUP state for %s", profesor.getNombre());
 
             if (!profesor.canUseMoreSubjects()) {
-                System.out.println("No more subjects to process for " + profesor.getNombre());
+                Log.debug("No more subjects to process for %s", profesor.getNombre());
                 // Transition to FINISHED
                 onEnd = 1;
                 return;
@@ -119,7 +168,7 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
 
             Asignatura currentSubject = profesor.getCurrentSubject();
             if (currentSubject == null) {
-                System.out.println("Error: No current subject available for " + profesor.getNombre());
+                Log.warn("Error: No current subject available for " + profesor.getNombre());
                 // Transition to FINISHED
                 onEnd = 1;
                 return;
@@ -131,13 +180,13 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
             // Setup performance tracking
             negotiationStartTime = System.currentTimeMillis();
 
-            System.out.printf("[SETUP] Starting assignment for %s (Code: %s) - Required hours: %d%n",
+            Log.debug("[SETUP] Starting assignment for %s (Code: %s) - Required hours: %d",
                     currentSubject.getNombre(),
                     currentSubject.getCodigoAsignatura(),
                     currentSubject.getHoras());
 
             sendProposalRequests();
-            proposalTimeout = System.currentTimeMillis() + TIMEOUT_PROPUESTA;
+            proposalTimeout = System.currentTimeMillis() + responseTimeout.timeoutMillis();
 
             // Default transition to COLLECTING
             onEnd = 0;
@@ -152,16 +201,28 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
     }
 
     /**
-     * Collecting state - waits for and collects proposals
+     * Collecting state - waits for and collects proposals. Se queda en el estado (con block)
+     * hasta tener todas las respuestas o vencer proposalTimeout.
      */
-    private class CollectingState extends OneShotBehaviour {
+    private class CollectingState extends SimpleBehaviour {
+        private boolean finished = false;
+        // action() corre en cada mensaje recibido; la entrada se registra una vez
+        private boolean entered = false;
+
         @Override
         public void action() {
-            System.out.println("Entering COLLECTING state");
+            if (!entered) {
+                entered = true;
+                Log.debug("Entering COLLECTING state");
+            }
 
-            MessageTemplate mt = MessageTemplate.or(
-                    MessageTemplate.MatchPerformative(ACLMessage.PROPOSE),
-                    MessageTemplate.MatchPerformative(ACLMessage.REFUSE)
+            MessageTemplate mt = MessageTemplate.and(
+                    MessageTemplate.or(
+                            MessageTemplate.MatchPerformative(ACLMessage.PROPOSE),
+                            MessageTemplate.MatchPerformative(ACLMessage.REFUSE)
+                    ),
+                    // Los REFUSE de una suscripcion los maneja AvailabilitySubscription
+                    MessageTemplate.not(MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_SUBSCRIBE))
             );
 
             boolean collectingDone = false;
@@ -176,7 +237,7 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
                     if (msg.getPerformative() == ACLMessage.PROPOSE) {
                         processProposal(msg);
                     } else if (msg.getPerformative() == ACLMessage.REFUSE) {
-                        incrementResponseCount();
+                        processRefuse(msg);
                     }
 
                     //true because the request was received
@@ -188,53 +249,153 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
             }
 
             // Check if we've received responses to all our requests
-            if (receivedResponseCount.get() >= sentRequestCount && sentRequestCount > 0) {
-                if (!batchProposals.isEmpty()) {
-                    System.out.println("Received all expected responses with proposals");
-                    // Transition to EVALUATING
-                    onEnd = 0;
-                    return;
-                }
+            boolean allReceived = receivedResponseCount.get() >= sentRequestCount &&
+                    (sentRequestCount > 0 || servedLocally);
+            if (allReceived && !batchProposals.isEmpty()) {
+                Log.debug("Received all expected responses with proposals");
+                // Transition to EVALUATING
+                finish(0);
+                return;
+            }
+
+            // La tanda no dejo propuestas: se pregunta a las K salas siguientes antes de reintentar
+            if (batchProposals.isEmpty() && (allReceived || System.currentTimeMillis() >= proposalTimeout) &&
+                    widenFanOut()) {
+                block(proposalTimeout - System.currentTimeMillis());
+                return;
             }
 
             // Check if we hit timeout
-            if (System.currentTimeMillis() > proposalTimeout) {
+            long remaining = proposalTimeout - System.currentTimeMillis();
+            if (remaining <= 0) {
                 if (!batchProposals.isEmpty()) {
-                    System.out.println("Timeout with proposals - proceeding to evaluation");
+                    Log.debug("Timeout with proposals - proceeding to evaluation");
                     // Transition to EVALUATING
-                    onEnd = 0;
+                    finish(0);
                 } else {
-                    System.out.println("Timeout with no proposals - handling retry");
+                    Log.debug("Timeout with no proposals - handling retry");
                     // Handle no proposals by transitioning to SETUP
                     handleNoProposals();
                     // Transition to SETUP
-                    onEnd = 1;
+                    finish(1);
                 }
                 return;
             }
 
-            // If we get here, we're still waiting for responses
-            block(100); // Block for a short time
-            // Stay in COLLECTING state
-            onEnd = 0;
+            // Still waiting for responses: se despierta con el siguiente mensaje o al vencer el plazo
+            block(remaining);
+        }
+
+        private void finish(int event) {
+            onEnd = event;
+            finished = true;
+        }
+
+        @Override
+        public boolean done() {
+            return finished;
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            finished = false;
+            entered = false;
         }
 
         private void processProposal(ACLMessage msg) {
+            if (CodecRegistry.CLASSROOM_AVAILABILITY_BATCH.equals(msg.getOntology())) {
+                processBatchProposal(msg);
+                return;
+            }
+
             try {
-                ClassroomAvailability sala = (ClassroomAvailability) msg.getContentObject();
+                ClassroomAvailability sala = CodecRegistry.decode(msg, ClassroomAvailability.class);
                 if (sala == null) {
-                    System.out.println("Null classroom availability received");
+                    Log.debug("Null classroom availability received");
                     return;
                 }
 
+                // Otro profesor cambio la sala desde la respuesta por lotes: esa copia ya no sirve
+                PrefetchedBatch.Room room = prefetched.get(msg.getSender());
+                if (room != null && room.isStale(sala.getVersion())) {
+                    prefetched.remove(msg.getSender());
+                }
+
+                int freeBlocks = 0;
+                for (List<Integer> blocks : sala.getAvailableBlocks().values()) {
+                    freeBlocks += blocks.size();
+                }
+                fanOut.observeFreeBlocks(msg.getSender(), freeBlocks);
+
                 BatchProposal batchProposal = new BatchProposal(sala, msg);
                 batchProposals.offer(batchProposal);
                 incrementResponseCount();
             } catch (Exception e) {
-                e.printStackTrace();
+                Log.error("Error processing proposal from " + msg.getSender().getLocalName(), e);
+            }
+        }
+
+        private void processBatchProposal(ACLMessage msg) {
+            try {
+                // Respuestas de un lote anterior ya reemplazado se descartan
+                PrefetchedBatch.Room room = prefetched.pending(msg.getSender(), msg.getConversationId());
+                if (room == null) {
+                    if (Log.isDebugEnabled()) {
+                        Log.debug("Discarding stale batch availability from " + msg.getSender().getLocalName());
+                    }
+                    return;
+                }
+                if (roundWaitsForPrefetch) {
+                    incrementResponseCount();
+                }
+
+                BatchAvailability sala = CodecRegistry.decode(msg, BatchAvailability.class);
+                if (sala == null) {
+                    Log.debug("Null batch availability received");
+                    prefetched.remove(msg.getSender());
+                    return;
+                }
+
+                room.fill(sala, msg);
+                if (!roundWaitsForPrefetch) {
+                    return;
+                }
+
+                BatchProposal proposal = room.proposalFor(
+                        prefetched.offsetOf(profesor.getCurrentSubjectIndex()),
+                        profesor.getCurrentSubject(), bloquesPendientes);
+                if (proposal != null) {
+                    batchProposals.offer(proposal);
+                }
+            } catch (Exception e) {
+                Log.error("Error processing batch availability from " + msg.getSender().getLocalName(), e);
             }
         }
 
+        /**
+         * Un REFUSE cuenta como respuesta solo si es de la ronda actual: al CFP por lotes
+         * pendiente (si la ronda espera ese lote) o a un CFP individual de esta ronda. Los que
+         * llegan tarde, de rondas ya cerradas, se ignoran.
+         */
+        private void processRefuse(ACLMessage msg) {
+            // La sala no respondera al lote: las asignaturas siguientes no la esperan
+            if (prefetched.refuse(msg.getSender(), msg.getConversationId())) {
+                if (roundWaitsForPrefetch) {
+                    incrementResponseCount();
+                }
+                return;
+            }
+
+            if (roundConversations.remove(msg.getConversationId())) {
+                fanOut.observeFreeBlocks(msg.getSender(), 0);
+                incrementResponseCount();
+                return;
+            }
+
+            Log.debug("Ignoring late refuse from %s", msg.getSender().getLocalName());
+        }
+
         private void handleNoProposals() {
             retryCount++;
             if (retryCount >= MAX_RETRIES) {
@@ -248,8 +409,8 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
                 retryCount = 0;
             } else {
                 // Add exponential backoff to avoid overwhelming the system
-                long backoffTime = (long) Math.pow(2, retryCount) * BACKOFF_TIME_OFFSET;
-                proposalTimeout = System.currentTimeMillis() + TIMEOUT_PROPUESTA + backoffTime;
+                long backoffTime = responseTimeout.backoffMillis(retryCount, BACKOFF_TIME_OFFSET);
+                proposalTimeout = System.currentTimeMillis() + responseTimeout.timeoutMillis() + backoffTime;
                 sendProposalRequests();
             }
         }
@@ -262,7 +423,7 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
         }
 
         private void logRequest(ACLMessage reply, boolean success) {
-            rttLogger.endRequest(
+            Double rtt = rttLogger.endRequest(
                     myAgent.getLocalName(),
                     reply.getConversationId(),
                     reply.getPerformative(),
@@ -271,16 +432,17 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
                     null,
                     "classroom-availability"
             );
+            responseTimeout.record(rtt);
         }
     }
 
     /**
-     * Evaluating state - evaluates proposals and attempts assignments
+     * Evaluating state - evaluates proposals and hands the valid ones to AWAITING_CONFIRMATION
      */
     private class EvaluatingState extends OneShotBehaviour {
         @Override
         public void action() {
-            System.out.println("Entering EVALUATING state");
+            Log.debug("Entering EVALUATING state");
 
             List<BatchProposal> currentBatchProposals = new ArrayList<>();
             while (!batchProposals.isEmpty()) {
@@ -292,7 +454,187 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
 
             List<BatchProposal> validProposals = evaluator.filterAndSortProposals(currentBatchProposals);
 
-            if (!validProposals.isEmpty() && tryAssignBatchProposals(validProposals)) {
+            if (!validProposals.isEmpty() && hasValidPendingHours()) {
+                // El CFP adelantado sale antes que los ACCEPT, asi la sala lo responde con el
+                // estado previo y las confirmaciones se descuentan al llegar la respuesta
+                if (NegotiationConfig.PIPELINE_PREFETCH && NegotiationConfig.CFP_BATCH_SIZE > 1) {
+                    prefetchNextSubjects();
+                }
+                confirmationState.begin(validProposals);
+                // Transition to AWAITING_CONFIRMATION
+                onEnd = 3;
+            } else if (validProposals.isEmpty() && widenFanOut()) {
+                // Transition to COLLECTING con la siguiente tanda de salas
+                onEnd = 1;
+            } else {
+                handleProposalFailure();
+                onEnd = profesor.canUseMoreSubjects() ? 0 : 2;
+            }
+        }
+
+        private int onEnd = 0;
+
+        @Override
+        public int onEnd() {
+            return onEnd;
+        }
+    }
+
+    /**
+     * Awaiting confirmation state - acepta las propuestas de a una sala y espera su INFORM con
+     * block(), sin ocupar el hilo del agente. Al terminar decide la siguiente ronda igual que
+     * lo hacia EVALUATING.
+     */
+    private class AwaitingConfirmationState extends SimpleBehaviour {
+        private static final long serialVersionUID = 1L;
+
+        // Propuestas aun no contactadas, en el orden de ConstraintEvaluator
+        private final List<BatchProposal> pendingProposals = new ArrayList<>();
+        private final int[] dailyAssignments = new int[SlotGrid.DAYS];
+        private int totalAssigned;
+        private long batchStartTime;
+
+        // ACCEPT en curso
+        private BatchProposal awaitingProposal;
+        private int awaitingRequestCount;
+        private MessageTemplate awaitingTemplate;
+        private long awaitingDeadline;
+        private long proposalStartTime;
+
+        private boolean finished;
+        private int onEnd;
+
+        void begin(List<BatchProposal> proposals) {
+            pendingProposals.clear();
+            pendingProposals.addAll(proposals);
+            Arrays.fill(dailyAssignments, 0);
+            totalAssigned = 0;
+            batchStartTime = System.currentTimeMillis();
+            awaitingProposal = null;
+            awaitingTemplate = null;
+            finished = false;
+            sendNextAssignment();
+        }
+
+        @Override
+        public void action() {
+            if (finished) {
+                return;
+            }
+
+            ACLMessage confirm = myAgent.receive(awaitingTemplate);
+            if (confirm != null) {
+                messageLogger.logMessageReceived(myAgent.getLocalName(), confirm);
+                responseTimeout.record((double) (System.currentTimeMillis() - proposalStartTime));
+                List<BatchAssignmentConfirmation.ConfirmedAssignment> confirmed = applyConfirmation(confirm);
+                fanOut.recordAccept(confirm.getSender(), !confirmed.isEmpty());
+                registerConfirmation(confirmed);
+                sendNextAssignment();
+                return;
+            }
+
+            long remaining = awaitingDeadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                Log.debug("No confirmation received from room %s for %d requested blocks",
+                        awaitingProposal.getRoomCode(), awaitingRequestCount);
+                fanOut.recordAccept(awaitingProposal.getOriginalMessage().getSender(), false);
+                sendNextAssignment();
+                return;
+            }
+
+            block(remaining);
+        }
+
+        /**
+         * Envia el ACCEPT a la siguiente sala que aun aporte bloques, o cierra la ronda. Los
+         * bloques se reparten entre todas las salas pendientes con BlockAssignmentPlanner y se
+         * vuelven a repartir despues de cada confirmacion, asi un bloque que una sala no
+         * confirma se pide a la siguiente mejor.
+         */
+        private void sendNextAssignment() {
+            Asignatura currentSubject = profesor.getCurrentSubject();
+            while (bloquesPendientes > 0 && !pendingProposals.isEmpty()) {
+                long[] picks = BlockAssignmentPlanner.plan(pendingProposals, profesor.getOccupiedMask(),
+                        dailyAssignments, bloquesPendientes);
+                int next = 0;
+                while (next < picks.length && picks[next] == 0) {
+                    next++;
+                }
+                if (next == picks.length) {
+                    break;
+                }
+
+                BatchProposal proposal = pendingProposals.remove(next);
+                List<BatchAssignmentRequest.AssignmentRequest> requests =
+                        buildAssignmentRequests(proposal, picks[next], currentSubject);
+
+                try {
+                    proposalStartTime = System.currentTimeMillis();
+                    awaitingTemplate = sendBatchAssignment(requests, proposal.getOriginalMessage());
+                    awaitingProposal = proposal;
+                    awaitingRequestCount = requests.size();
+                    awaitingDeadline = proposalStartTime + TIMEOUT_CONFIRMACION;
+                    return;
+                } catch (IOException e) {
+                    Log.error("Error in batch assignment", e);
+                    break;
+                }
+            }
+
+            complete(currentSubject);
+        }
+
+        private List<BatchAssignmentRequest.AssignmentRequest> buildAssignmentRequests(
+                BatchProposal batchProposal, long slots, Asignatura currentSubject) {
+            List<BatchAssignmentRequest.AssignmentRequest> requests = new ArrayList<>(Long.bitCount(slots));
+            for (long bits = slots; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                requests.add(new BatchAssignmentRequest.AssignmentRequest(
+                        SlotGrid.dayOf(slot),
+                        SlotGrid.blockOf(slot),
+                        currentSubject.getNombre(),
+                        batchProposal.getBlockScore(slot),
+                        batchProposal.getRoomCode(),
+                        currentSubject.getVacantes(),
+                        profesor.getNombre()
+                ));
+            }
+            return requests;
+        }
+
+        // Solo cuenta lo que las salas confirman: con varios profesores negociando a la vez
+        // una sala puede haber entregado parte de los bloques pedidos a otro
+        private void registerConfirmation(List<BatchAssignmentConfirmation.ConfirmedAssignment> confirmed) {
+            for (BatchAssignmentConfirmation.ConfirmedAssignment assignment : confirmed) {
+                dailyAssignments[assignment.getDay().ordinal()]++;
+            }
+            totalAssigned += confirmed.size();
+
+            if (confirmed.size() < awaitingRequestCount) {
+                Log.debug("Room %s confirmed %d of %d requested blocks for %s",
+                        awaitingProposal.getRoomCode(), confirmed.size(), awaitingRequestCount,
+                        profesor.getCurrentSubject().getNombre());
+            }
+
+            if (!confirmed.isEmpty()) {
+                long proposalTime = System.currentTimeMillis() - proposalStartTime;
+                Log.debug("[TIMING] Room %s assignment took %d ms - Assigned %d blocks for %s",
+                        awaitingProposal.getRoomCode(), proposalTime, confirmed.size(),
+                        profesor.getCurrentSubject().getNombre());
+            }
+        }
+
+        private void complete(Asignatura currentSubject) {
+            finished = true;
+            awaitingProposal = null;
+            awaitingTemplate = null;
+            pendingProposals.clear();
+
+            long totalBatchTime = System.currentTimeMillis() - batchStartTime;
+            Log.debug("[TIMING] Total batch assignment time for %s: %d ms - Total blocks assigned: %d",
+                    currentSubject.getNombre(), totalBatchTime, totalAssigned);
+
+            if (totalAssigned > 0) {
                 retryCount = 0;
                 if (bloquesPendientes == 0) {
                     profesor.moveToNextSubject();
@@ -300,223 +642,156 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
                     onEnd = 0;
                 } else {
                     sendProposalRequests();
-                    proposalTimeout = System.currentTimeMillis() + TIMEOUT_PROPUESTA;
+                    proposalTimeout = System.currentTimeMillis() + responseTimeout.timeoutMillis();
                     // Transition to COLLECTING
                     onEnd = 1;
                 }
             } else {
                 handleProposalFailure();
                 // Transition to SETUP or FINISHED
-                // This depends on whether there was a failure or if we're done
-                if (profesor.canUseMoreSubjects()) {
-                    onEnd = 0; // Back to SETUP
-                } else {
-                    onEnd = 2; // Go to FINISHED
-                }
+                onEnd = profesor.canUseMoreSubjects() ? 0 : 2;
             }
         }
 
-        private void handleProposalFailure() {
-            retryCount++;
-            if (retryCount >= MAX_RETRIES) {
-                if (assignationData.hasSalaAsignada()) {
-                    assignationData.setSalaAsignada(null);
-                } else {
-                    profesor.moveToNextSubject();
-                }
-                retryCount = 0;
-            } else {
-                // Add exponential backoff here too
-                long backoffTime = (long) Math.pow(2, retryCount) * BACKOFF_TIME_OFFSET;
-                proposalTimeout = System.currentTimeMillis() + TIMEOUT_PROPUESTA + backoffTime;
-                sendProposalRequests();
-            }
+        @Override
+        public boolean done() {
+            return finished;
         }
 
-        private int onEnd = 0;
-
         @Override
         public int onEnd() {
             return onEnd;
         }
     }
 
+    private boolean hasValidPendingHours() {
+        Asignatura currentSubject = profesor.getCurrentSubject();
+        int requiredHours = currentSubject.getHoras();
+        if (bloquesPendientes <= 0 || bloquesPendientes > requiredHours) {
+            Log.warn("Invalid pending hours state: %d/%d for %s",
+                    bloquesPendientes, requiredHours, currentSubject.getNombre());
+            return false;
+        }
+        return true;
+    }
+
+    private void handleProposalFailure() {
+        retryCount++;
+        if (retryCount >= MAX_RETRIES) {
+            if (assignationData.hasSalaAsignada()) {
+                assignationData.setSalaAsignada(null);
+            } else {
+                profesor.moveToNextSubject();
+            }
+            retryCount = 0;
+        } else {
+            // Add exponential backoff here too
+            long backoffTime = responseTimeout.backoffMillis(retryCount, BACKOFF_TIME_OFFSET);
+            proposalTimeout = System.currentTimeMillis() + responseTimeout.timeoutMillis() + backoffTime;
+            sendProposalRequests();
+        }
+    }
+
     /**
      * Finished state - performs cleanup and notifies the next professor
      */
     private class FinishedState extends OneShotBehaviour {
         @Override
         public void action() {
-            System.out.println("Entering FINISHED state");
+            Log.debug("Entering FINISHED state");
+
+            cancelSubscriptions();
 
             long totalTime = System.currentTimeMillis() - negotiationStartTime;
-            System.out.printf("[TIMING] Professor %s completed all negotiations in %d ms%n",
+            Log.info("[TIMING] Professor %s completed all negotiations in %d ms",
                     profesor.getNombre(), totalTime);
 
             // Print individual subject times
             subjectNegotiationTimes.forEach((subject, time) ->
-                    System.out.printf("[TIMING] Subject %s negotiation took %d ms%n", subject, time));
-
-            profesor.finalizarNegociaciones();
-        }
-    }
-
-    /**
-     * Attempts to assign batch proposals to classrooms
-     */
-    private boolean tryAssignBatchProposals(List<BatchProposal> batchProposals) {
-        Asignatura currentSubject = profesor.getCurrentSubject();
-        int requiredHours = currentSubject.getHoras();
-        long batchStartTime = System.currentTimeMillis();
-        if (bloquesPendientes <= 0 || bloquesPendientes > requiredHours) {
-            System.out.printf("Invalid pending hours state: %d/%d for %s%n",
-                    bloquesPendientes, requiredHours, currentSubject.getNombre());
-            return false;
-        }
-
-        Map<Day, Integer> dailyAssignments = new HashMap<>();
-        int totalAssigned = 0;
-
-        // Process each batch proposal (which represents one room's available blocks)
-        for (BatchProposal batchProposal : batchProposals) {
-            long proposalStartTime = System.currentTimeMillis();
-            List<BatchAssignmentRequest.AssignmentRequest> requests = new ArrayList<>();
-
-            // Process each day's blocks in this room
-            for (Map.Entry<Day, List<BatchProposal.BlockProposal>> entry :
-                    batchProposal.getDayProposals().entrySet()) {
-                Day day = entry.getKey();
-
-                // Skip if day already has 2 blocks
-                if (dailyAssignments.getOrDefault(day, 0) >= 2) continue;
-
-                // Process blocks for this day
-                for (BatchProposal.BlockProposal block : entry.getValue()) {
-                    // Stop if we've assigned all needed blocks
-                    if (totalAssigned >= bloquesPendientes) break;
-
-                    // Skip if block not available
-                    if (!profesor.isBlockAvailable(day, block.getBlock())) continue;
-
-                    requests.add(new BatchAssignmentRequest.AssignmentRequest(
-                            day,
-                            block.getBlock(),
-                            currentSubject.getNombre(),
-                            batchProposal.getSatisfactionScore(),
-                            batchProposal.getRoomCode(),
-                            currentSubject.getVacantes(),
-                            profesor.getNombre()
-                    ));
-
-                    totalAssigned++;
-                    dailyAssignments.merge(day, 1, Integer::sum);
-                }
+                    Log.debug("[TIMING] Subject %s negotiation took %d ms", subject, time));
+            if (Log.isDebugEnabled()) {
+                Log.debug("[CONSTRAINTS] Professor " + profesor.getNombre() + " " + evaluator.getPipeline().summary());
             }
 
-            // Send batch assignment if we have requests
-            if (!requests.isEmpty()) {
-                try {
-                    if (sendBatchAssignment(requests, batchProposal.getOriginalMessage())) {
-                        System.out.printf("Successfully assigned %d blocks in room %s for %s%n",
-                                requests.size(), batchProposal.getRoomCode(),
-                                currentSubject.getNombre());
-
-                        long proposalTime = System.currentTimeMillis() - proposalStartTime;
-                        System.out.printf("[TIMING] Room %s assignment took %d ms - Assigned %d blocks for %s%n",
-                                batchProposal.getRoomCode(), proposalTime, requests.size(),
-                                currentSubject.getNombre());
-                    }
-                } catch (Exception e) {
-                    System.err.println("Error in batch assignment: " + e.getMessage());
-                    return false;
-                }
-            }
+            profesor.finalizarNegociaciones();
         }
-
-        long totalBatchTime = System.currentTimeMillis() - batchStartTime;
-        System.out.printf("[TIMING] Total batch assignment time for %s: %d ms - Total blocks assigned: %d%n",
-                currentSubject.getNombre(), totalBatchTime, totalAssigned);
-
-        return totalAssigned > 0;
     }
 
     /**
-     * Sends a batch assignment request and waits for confirmation
+     * Sends a batch assignment request and returns the template that matches the room's confirmation
      */
-    private boolean sendBatchAssignment(List<BatchAssignmentRequest.AssignmentRequest> requests,
-                                        ACLMessage originalMsg) throws IOException {
+    private MessageTemplate sendBatchAssignment(List<BatchAssignmentRequest.AssignmentRequest> requests,
+                                                ACLMessage originalMsg) throws IOException {
         // Create batch request
         BatchAssignmentRequest batchRequest = new BatchAssignmentRequest(requests);
 
         // Send acceptance message
         ACLMessage batchAccept = originalMsg.createReply();
         batchAccept.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
-        batchAccept.setContentObject(batchRequest);
+        batchAccept.setReplyWith("accept-" + profesor.getNombre() + "-" + System.nanoTime());
+        CodecRegistry.setContent(batchAccept, CodecRegistry.ASSIGNMENT_REQUEST, batchRequest);
 
         messageLogger.logMessageSent(myAgent.getLocalName(), batchAccept);
 
         profesor.send(batchAccept);
 
-        // Wait for confirmation
-        MessageTemplate mt = MessageTemplate.and(
+        // Confirmacion (la sala tambien envia INFORM a sus suscriptores). Se filtra por
+        // in-reply-to para no tomar una confirmacion atrasada de un ACCEPT anterior
+        return MessageTemplate.and(
                 MessageTemplate.MatchSender(originalMsg.getSender()),
-                MessageTemplate.MatchPerformative(ACLMessage.INFORM)
+                MessageTemplate.and(
+                        MessageTemplate.and(
+                                MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                                MessageTemplate.MatchOntology(CodecRegistry.ASSIGNMENT_CONFIRMATION)
+                        ),
+                        MessageTemplate.MatchInReplyTo(batchAccept.getReplyWith())
+                )
         );
-
-        return waitForConfirmation(mt, requests);
     }
 
+    /**
+     * Registra en el profesor los bloques confirmados y los descuenta de las copias locales
+     * de disponibilidad. Retorna lo confirmado (vacio si la confirmacion no se pudo leer).
+     */
+    private List<BatchAssignmentConfirmation.ConfirmedAssignment> applyConfirmation(ACLMessage confirm) {
+        try {
+            BatchAssignmentConfirmation confirmation =
+                    CodecRegistry.decode(confirm, BatchAssignmentConfirmation.class);
+
+            long confirmedSlots = 0L;
+            for (BatchAssignmentConfirmation.ConfirmedAssignment assignment :
+                    confirmation.getConfirmedAssignments()) {
+                profesor.updateScheduleInfo(
+                        assignment.getDay(),
+                        assignment.getClassroomCode(),
+                        assignment.getBlock(),
+                        profesor.getCurrentSubject().getNombre(),
+                        assignment.getSatisfaction()
+                );
 
-    private boolean waitForConfirmation(MessageTemplate mt, List<BatchAssignmentRequest.AssignmentRequest> requests) {
-        if (bloquesPendientes - requests.size() < 0) {
-            System.out.println("WARNING: Assignment would exceed required hours");
-            return false;
-        }
-
-        long startTime = System.currentTimeMillis();
-        //long timeout = 1000;
-
-        while (System.currentTimeMillis() - startTime < TIMEOUT_PROPUESTA) {
-            ACLMessage confirm = myAgent.receive(mt);
-            if (confirm != null) {
-                messageLogger.logMessageReceived(myAgent.getLocalName(), confirm);
-                try {
-                    BatchAssignmentConfirmation confirmation =
-                            (BatchAssignmentConfirmation) confirm.getContentObject();
-
-                    for (BatchAssignmentConfirmation.ConfirmedAssignment assignment :
-                            confirmation.getConfirmedAssignments()) {
-                        profesor.updateScheduleInfo(
-                                assignment.getDay(),
-                                assignment.getClassroomCode(),
-                                assignment.getBlock(),
-                                profesor.getCurrentSubject().getNombre(),
-                                assignment.getSatisfaction()
-                        );
-
-                        bloquesPendientes--;
-                        assignationData.assign(
-                                assignment.getDay(),
-                                assignment.getClassroomCode(),
-                                assignment.getBlock()
-                        );
-                    }
-                    return true;
-                } catch (UnreadableException e) {
-                    System.err.println("Error reading confirmation: " + e.getMessage());
-                    e.printStackTrace();
-                    return false;
-                }
+                bloquesPendientes--;
+                assignationData.assign(
+                        assignment.getDay(),
+                        assignment.getClassroomCode(),
+                        assignment.getBlock()
+                );
+                confirmedSlots |= SlotGrid.bit(assignment.getDay(), assignment.getBlock());
             }
 
-            /*
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-            }*/
+            // La sala ya no ofrece esos bloques: se refleja en la copia local del lote
+            PrefetchedBatch.Room room = prefetched.get(confirm.getSender());
+            if (room != null) {
+                room.take(confirmedSlots);
+            }
+            replica.take(confirm.getSender(), confirmedSlots);
+            if (confirmedSlots != 0) {
+                lastGrantingRoom = confirm.getSender();
+            }
+            return confirmation.getConfirmedAssignments();
+        } catch (IOException e) {
+            Log.error("Error reading confirmation", e);
+            return Collections.emptyList();
         }
-        return false;
     }
 
     /**
@@ -525,6 +800,10 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
     private void sendProposalRequests() {
         sentRequestCount = 0;
         receivedResponseCount.set(0);
+        servedLocally = false;
+        roundWaitsForPrefetch = false;
+        fanOut.clear();
+        roundConversations.clear();
 
         try {
             List<DFAgentDescription> results = DFCache.search(profesor, AgenteSala.SERVICE_NAME);
@@ -537,117 +816,404 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
                 return;
             }
 
-            //sort rooms by localname
-            //results.sort(Comparator.comparing(DFAgentDescription::getName));
+            // La replica de las suscripciones ya responde la ronda: no se envian CFPs
+            if (availabilitySubscription != null && offerReplicaProposals(currentSubject, results)) {
+                servedLocally = true;
+                Log.debug("Using subscribed availability for %s", currentSubject.getNombre());
+                return;
+            }
 
-            for (DFAgentDescription room : results) {
-                if (canQuickReject(currentSubject, room)) {
-                    continue;
+            // Primera ronda de una asignatura: se usa (o se pide) la disponibilidad por lotes
+            if (NegotiationConfig.CFP_BATCH_SIZE > 1 && retryCount == 0 &&
+                    bloquesPendientes == currentSubject.getHoras()) {
+                if (prefetched.covers(profesor.getCurrentSubjectIndex())) {
+                    servedLocally = offerPrefetchedProposals(currentSubject, results);
+                    // Lote adelantado aun en camino: la ronda espera esas respuestas en vez de enviar CFPs
+                    int pending = prefetched.countPending();
+                    if (pending > 0) {
+                        sentRequestCount = pending;
+                        roundWaitsForPrefetch = true;
+                    }
+                    if (servedLocally || pending > 0) {
+                        Log.debug("Using batched availability for %s", currentSubject.getNombre());
+                        return;
+                    }
                 }
 
-                String conversationId = "neg-" + profesor.getNombre() + "-" +
-                        room.getName().getLocalName() + "-" +
-                        System.currentTimeMillis();
-
-                ACLMessage cfp = createCFPMessage(currentSubject);
-                cfp.setConversationId(conversationId);
-                cfp.addReceiver(room.getName());
-
-                rttLogger.startRequest(
-                        myAgent.getLocalName(),
-                        conversationId,
-                        ACLMessage.CFP,
-                        room.getName().getLocalName(),
-                        null,
-                        "classroom-availability"
-                );
+                List<Asignatura> batch = profesor.getUpcomingSubjects(NegotiationConfig.CFP_BATCH_SIZE);
+                if (batch.size() > 1) {
+                    roundWaitsForPrefetch = true;
+                    sentRequestCount += requestBatchAvailability(profesor.getCurrentSubjectIndex(), batch, results);
+                    if (Log.isDebugEnabled()) {
+                        Log.debug("Sent " + sentRequestCount + " batched proposal requests for " +
+                                batch.size() + " subjects");
+                    }
+                    return;
+                }
+            }
 
-                messageLogger.logMessageSent(myAgent.getLocalName(), cfp);
+            // Primero las K salas mejor puntuadas; la sala que ya tiene bloques de la asignatura va primero
+            RoomCandidateIndex index = RoomCandidateIndex.of(results);
+            AID preferred = assignationData.hasSalaAsignada() ? lastGrantingRoom : null;
+            fanOut.start(currentSubject, index.candidates(currentSubject), preferred, replica, index);
+            sentRequestCount += sendFanOutCFPs(currentSubject);
 
-                profesor.send(cfp);
-                sentRequestCount++;
+            if (Log.isDebugEnabled()) {
+                Log.debug("Sent " + sentRequestCount + " proposal requests");
             }
-
-            System.out.println("Sent " + sentRequestCount + " proposal requests");
         } catch (Exception e) {
-            System.err.println("Error sending proposal requests: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error sending proposal requests", e);
         }
     }
 
     /**
-     * Create a CFP message for the current subject
+     * Envia el CFP de la asignatura a la siguiente tanda de salas y retorna cuantos envio.
      */
-    private ACLMessage createCFPMessage(Asignatura currentSubject) {
-        ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+    private int sendFanOutCFPs(Asignatura currentSubject) {
+        int sent = 0;
+        for (AID room : fanOut.next()) {
+            String conversationId = "neg-" + profesor.getNombre() + "-" +
+                    room.getLocalName() + "-" +
+                    System.currentTimeMillis();
+
+            ACLMessage cfp = createCFPMessage(currentSubject);
+            cfp.setConversationId(conversationId);
+            cfp.addReceiver(room);
+            roundConversations.add(conversationId);
+
+            rttLogger.startRequest(
+                    myAgent.getLocalName(),
+                    conversationId,
+                    ACLMessage.CFP,
+                    room.getLocalName(),
+                    null,
+                    "classroom-availability"
+            );
 
-        cfp.setSender(profesor.getAID());
-        cfp.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
+            messageLogger.logMessageSent(myAgent.getLocalName(), cfp);
 
-        // Build request info
-        String solicitudInfo = String.format("%s,%d,%d,%s,%d,%s,%s,%d",
-                sanitizeSubjectName(currentSubject.getNombre()),
-                currentSubject.getVacantes(),
-                currentSubject.getNivel(),
-                currentSubject.getCampus(),
-                bloquesPendientes,
-                assignationData.getSalaAsignada(),
-                assignationData.getUltimoDiaAsignado() != null ?
-                        assignationData.getUltimoDiaAsignado().toString() : "",
-                assignationData.getUltimoBloqueAsignado());
+            profesor.send(cfp);
+            sent++;
+        }
+        return sent;
+    }
 
-        cfp.setContent(solicitudInfo);
-        cfp.setConversationId("neg-" + profesor.getNombre() + "-" + bloquesPendientes);
+    /**
+     * Amplia la ronda actual a las K salas siguientes del ranking. Retorna false si ya se
+     * contacto a todas las candidatas (o la ronda no fue por CFP individual).
+     */
+    private boolean widenFanOut() {
+        Asignatura currentSubject = profesor.getCurrentSubject();
+        if (currentSubject == null || !fanOut.hasMore()) {
+            return false;
+        }
 
-        return cfp;
+        int sent = sendFanOutCFPs(currentSubject);
+        sentRequestCount += sent;
+        proposalTimeout = System.currentTimeMillis() + responseTimeout.timeoutMillis();
+        if (Log.isDebugEnabled()) {
+            Log.debug("Widening to " + sent + " more rooms for " + currentSubject.getNombre());
+        }
+        return sent > 0;
     }
 
     /**
-     * Generate cache key for room rejection cache
+     * Un CFP por sala que lista las asignaturas desde first; cada sala responde una sola vez
+     * con sus bloques libres y las asignaturas que puede alojar. Reemplaza el lote anterior y
+     * retorna cuantos CFP se enviaron.
      */
-    private String getCacheKey(Asignatura subject, String roomId) {
-        return subject.getCodigoAsignatura() + "-" + roomId;
+    private int requestBatchAvailability(int first, List<Asignatura> batch, List<DFAgentDescription> rooms) {
+        prefetched.start(first, batch.size());
+
+        List<SolicitudInfo> solicitudes = new ArrayList<>(batch.size());
+        for (Asignatura subject : batch) {
+            solicitudes.add(new SolicitudInfo(
+                    sanitizeSubjectName(subject.getNombre()),
+                    subject.getVacantes(),
+                    subject.getNivel(),
+                    subject.getCampus(),
+                    subject.getHoras(),
+                    null,
+                    null,
+                    0));
+        }
+        String content = SolicitudInfo.formatBatch(solicitudes);
+
+        // Asignaturas del lote que cada sala podria alojar (bit i = batch.get(i))
+        RoomCandidateIndex index = RoomCandidateIndex.of(rooms);
+        Map<AID, Long> candidatesByRoom = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            long bit = 1L << i;
+            for (DFAgentDescription room : index.candidates(batch.get(i))) {
+                candidatesByRoom.merge(room.getName(), bit, (a, b) -> a | b);
+            }
+        }
+
+        int sent = 0;
+        for (Map.Entry<AID, Long> candidateEntry : candidatesByRoom.entrySet()) {
+            AID room = candidateEntry.getKey();
+            String conversationId = "neg-" + profesor.getNombre() + "-" +
+                    room.getLocalName() + "-" +
+                    System.currentTimeMillis();
+            // Solo se guardan las asignaturas que no se descartaron rapido para esta sala
+            prefetched.expect(room, conversationId, candidateEntry.getValue());
+
+            ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+            cfp.setSender(profesor.getAID());
+            cfp.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
+            cfp.setOntology(CodecRegistry.CLASSROOM_AVAILABILITY_BATCH);
+            cfp.setContent(content);
+            cfp.setConversationId(conversationId);
+            cfp.addReceiver(room);
+
+            rttLogger.startRequest(
+                    myAgent.getLocalName(),
+                    conversationId,
+                    ACLMessage.CFP,
+                    room.getLocalName(),
+                    null,
+                    CodecRegistry.CLASSROOM_AVAILABILITY_BATCH
+            );
+
+            messageLogger.logMessageSent(myAgent.getLocalName(), cfp);
+
+            profesor.send(cfp);
+            sent++;
+        }
+        return sent;
     }
 
-    private static final int ROOM_CAMPUS_INDEX = 0;
-    private static final int ROOM_CAPACITY_INDEX = 2;
+    /**
+     * Adelanta el CFP por lotes de las asignaturas siguientes mientras la actual se confirma,
+     * para que la siguiente ronda no espere un viaje completo. No hace nada si el lote vigente
+     * ya las cubre o si la replica de las suscripciones puede responder.
+     */
+    private void prefetchNextSubjects() {
+        int next = profesor.getCurrentSubjectIndex() + 1;
+        if (prefetched.covers(next)) {
+            return;
+        }
+
+        List<Asignatura> upcoming = profesor.getUpcomingSubjects(NegotiationConfig.CFP_BATCH_SIZE + 1);
+        if (upcoming.size() < 2) {
+            return;
+        }
+        List<Asignatura> batch = upcoming.subList(1, upcoming.size());
+
+        List<DFAgentDescription> rooms = DFCache.search(profesor, AgenteSala.SERVICE_NAME);
+        if (rooms.isEmpty() ||
+                (availabilitySubscription != null && replica.covers(replicaCandidates(batch.get(0), rooms)))) {
+            return;
+        }
+
+        int sent = requestBatchAvailability(next, batch, rooms);
+        if (Log.isDebugEnabled()) {
+            Log.debug("Prefetching availability for " + batch.size() + " subjects from " + sent + " rooms");
+        }
+    }
 
     /**
-     * Quick rejection logic to avoid unnecessary messages
+     * Arma las propuestas de la asignatura actual con lo que respondieron las salas al ultimo
+     * CFP por lotes. Retorna false si el lote no cubre la asignatura o no deja propuestas.
      */
-    private boolean canQuickReject(Asignatura subject, DFAgentDescription room) {
-        String cacheKey = getCacheKey(subject, room.getName().getLocalName());
+    private boolean offerPrefetchedProposals(Asignatura currentSubject, List<DFAgentDescription> rooms) {
+        if (!prefetched.covers(profesor.getCurrentSubjectIndex())) {
+            return false;
+        }
+        int offset = prefetched.offsetOf(profesor.getCurrentSubjectIndex());
 
-        return quickRejectCache.computeIfAbsent(cacheKey, k -> {
-            ServiceDescription sd = (ServiceDescription) room.getAllServices().next();
-            List<Property> props = new ArrayList<>();
-            sd.getAllProperties().forEachRemaining(prop -> props.add((Property) prop));
+        boolean offered = false;
+        for (DFAgentDescription room : RoomCandidateIndex.of(rooms).candidates(currentSubject)) {
+            PrefetchedBatch.Room prefetchedRoom = prefetched.get(room.getName());
+            if (prefetchedRoom == null || prefetchedRoom.isPending()) {
+                continue;
+            }
 
-            String roomCampus = (String) props.get(ROOM_CAMPUS_INDEX).getValue();
-            int roomCapacity = Integer.parseInt((String) props.get(ROOM_CAPACITY_INDEX).getValue());
+            // La replica ve una version posterior a la esperada: otro profesor tomo bloques
+            AvailabilityReplica.Entry entry = replica.get(room.getName());
+            if (entry != null && prefetchedRoom.isStale(entry.getVersion())) {
+                prefetched.remove(room.getName());
+                continue;
+            }
 
-            // Quick reject conditions
-            if (!roomCampus.equals(subject.getCampus())) {
-                return true;
+            BatchProposal proposal = prefetchedRoom.proposalFor(offset, currentSubject, bloquesPendientes);
+            if (proposal != null) {
+                batchProposals.offer(proposal);
+                offered = true;
+            }
+        }
+        return offered;
+    }
+
+    /**
+     * Se suscribe a las salas que podrian alojar alguna asignatura del profesor. El AGREE de
+     * cada sala trae su estado completo y despues llegan deltas por cada asignacion.
+     */
+    private void subscribeToRooms() {
+        try {
+            List<DFAgentDescription> rooms = DFCache.search(profesor, AgenteSala.SERVICE_NAME);
+            List<Asignatura> subjects = profesor.getUpcomingSubjects(Integer.MAX_VALUE);
+
+            ACLMessage subscribe = new ACLMessage(ACLMessage.SUBSCRIBE);
+            subscribe.setProtocol(FIPANames.InteractionProtocol.FIPA_SUBSCRIBE);
+            subscribe.setOntology(CodecRegistry.AVAILABILITY_UPDATE);
+            subscribe.setConversationId("sub-" + profesor.getNombre() + "-" + System.currentTimeMillis());
+
+            RoomCandidateIndex index = RoomCandidateIndex.of(rooms);
+            Set<AID> candidates = new LinkedHashSet<>();
+            for (Asignatura subject : subjects) {
+                for (DFAgentDescription room : index.candidates(subject)) {
+                    candidates.add(room.getName());
+                }
+            }
+            for (AID room : candidates) {
+                subscribe.addReceiver(room);
+                subscribedRooms.add(room);
+            }
+
+            if (subscribedRooms.isEmpty()) {
+                return;
             }
 
-            // Meeting room logic
-            boolean subjectNeedsMeetingRoom = subject.getVacantes() < MEETING_ROOM_THRESHOLD;
-            boolean isMeetingRoom = roomCapacity < MEETING_ROOM_THRESHOLD;
+            messageLogger.logMessageSent(myAgent.getLocalName(), subscribe);
+            availabilitySubscription = new AvailabilitySubscription(subscribe);
+            profesor.addBehaviour(availabilitySubscription);
+        } catch (Exception e) {
+            Log.warn("Error subscribing to rooms: %s", e.getMessage());
+        }
+    }
 
-            // Reject if meeting room requirements don't match
-            if (subjectNeedsMeetingRoom != isMeetingRoom) {
-                return true;
+    private void cancelSubscriptions() {
+        if (availabilitySubscription == null) {
+            return;
+        }
+
+        for (AID room : subscribedRooms) {
+            availabilitySubscription.cancel(room, true);
+        }
+        subscribedRooms.clear();
+        replica.clear();
+        availabilitySubscription = null;
+    }
+
+    /**
+     * Arma las propuestas desde la replica si todas las salas candidatas estan en ella.
+     * Aplica los mismos filtros que la sala al responder un CFP.
+     */
+    private boolean offerReplicaProposals(Asignatura currentSubject, List<DFAgentDescription> rooms) {
+        List<AID> candidates = replicaCandidates(currentSubject, rooms);
+        if (!replica.covers(candidates)) {
+            return false;
+        }
+
+        long allowedBlocks = ConstraintEvaluator.allowedBlocksMask(currentSubject.getNivel(), bloquesPendientes);
+        boolean offered = false;
+        for (AID room : candidates) {
+            AvailabilityReplica.Entry entry = replica.get(room);
+            if (!ConstraintEvaluator.isRoomTypeAllowed(entry.getCapacidad(), currentSubject.getVacantes())) {
+                continue;
             }
 
-            // For meeting rooms, we're more lenient with capacity
-            if (isMeetingRoom) {
-                return roomCapacity < Math.ceil(subject.getVacantes() * 0.8); // Allow some flexibility
+            long blocks = entry.getFreeMask() & allowedBlocks;
+            if (blocks == 0) {
+                continue;
             }
 
-            // For regular rooms
-            return roomCapacity < subject.getVacantes();
-        });
+            ClassroomAvailability sala = new ClassroomAvailability(entry.getCodigo(), entry.getCampus(),
+                    entry.getCapacidad(), entry.getVersion(), SlotGrid.toBlockLists(blocks));
+            batchProposals.offer(new BatchProposal(sala, replicaProposalMessage(room)));
+            offered = true;
+        }
+        return offered;
+    }
+
+    private List<AID> replicaCandidates(Asignatura subject, List<DFAgentDescription> rooms) {
+        List<AID> candidates = new ArrayList<>();
+        for (DFAgentDescription room : RoomCandidateIndex.of(rooms).candidates(subject)) {
+            candidates.add(room.getName());
+        }
+        return candidates;
+    }
+
+    /**
+     * PROPOSE equivalente al que habria enviado la sala; solo se usa para armar el ACCEPT.
+     */
+    private ACLMessage replicaProposalMessage(AID room) {
+        ACLMessage propose = new ACLMessage(ACLMessage.PROPOSE);
+        propose.setSender(room);
+        propose.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
+        propose.setConversationId("neg-" + profesor.getNombre() + "-" +
+                room.getLocalName() + "-" + System.currentTimeMillis());
+        return propose;
+    }
+
+    private class AvailabilitySubscription extends SubscriptionInitiator {
+        private static final long serialVersionUID = 1L;
+
+        AvailabilitySubscription(ACLMessage subscribe) {
+            super(profesor, subscribe);
+        }
+
+        @Override
+        protected void handleAgree(ACLMessage agree) {
+            applyUpdate(agree);
+        }
+
+        @Override
+        protected void handleInform(ACLMessage inform) {
+            applyUpdate(inform);
+        }
+
+        @Override
+        protected void handleRefuse(ACLMessage refuse) {
+            replica.remove(refuse.getSender());
+        }
+
+        private void applyUpdate(ACLMessage msg) {
+            messageLogger.logMessageReceived(myAgent.getLocalName(), msg);
+            try {
+                AvailabilityUpdate update = CodecRegistry.decode(msg, AvailabilityUpdate.class);
+                if (update != null) {
+                    replica.apply(msg.getSender(), update);
+                }
+            } catch (IOException e) {
+                // Sin replica confiable para esa sala se vuelve a preguntar con CFP
+                replica.remove(msg.getSender());
+            }
+        }
+    }
+
+    /**
+     * Create a CFP message for the current subject
+     */
+    private ACLMessage createCFPMessage(Asignatura currentSubject) {
+        ACLMessage cfp = new ACLMessage(ACLMessage.CFP);
+
+        cfp.setSender(profesor.getAID());
+        cfp.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
+
+        // Build request info; rooms use it to drop blocks we could never accept
+        SolicitudInfo solicitudInfo = new SolicitudInfo(
+                sanitizeSubjectName(currentSubject.getNombre()),
+                currentSubject.getVacantes(),
+                currentSubject.getNivel(),
+                currentSubject.getCampus(),
+                bloquesPendientes,
+                assignationData.getSalaAsignada(),
+                assignationData.getUltimoDiaAsignado(),
+                assignationData.getUltimoBloqueAsignado());
+        if (NegotiationConfig.ROOM_SIDE_SCORING) {
+            // La sala puntua cada bloque; aqui solo se combinan y ordenan las propuestas
+            solicitudInfo.withScoring(
+                    currentSubject.getActividad(),
+                    profesor.getTipoContrato(),
+                    profesor.getSubjectMask(currentSubject.getNombre()));
+        }
+
+        cfp.setContent(solicitudInfo.format());
+        cfp.setConversationId("neg-" + profesor.getNombre() + "-" + bloquesPendientes);
+
+        return cfp;
     }
 
     /**
@@ -660,6 +1226,7 @@ public class NegotiationFSMBehaviour extends FSMBehaviour {
     /**
      * Get the number of blocks pending
      */
+    @Override
     public int getBloquesPendientes() {
         return bloquesPendientes;
     }
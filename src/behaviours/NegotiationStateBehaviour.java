@@ -2,7 +2,6 @@ package behaviours;
 
 import agentes.AgenteProfesor;
 import agentes.AgenteSala;
-import constants.enums.Day;
 import debugscreens.ProfessorDebugViewer;
 import df.DFCache;
 import evaluators.ConstraintEvaluator;
@@ -13,12 +12,15 @@ import jade.domain.FIPAAgentManagement.ServiceDescription;
 import jade.domain.FIPANames;
 import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
-import jade.lang.acl.UnreadableException;
+import logging.Log;
 import objetos.Asignatura;
 import objetos.AssignationData;
 import objetos.helper.BatchAssignmentConfirmation;
 import objetos.helper.BatchAssignmentRequest;
 import objetos.helper.BatchProposal;
+import objetos.helper.CodecRegistry;
+import objetos.helper.SlotGrid;
+import objetos.helper.SolicitudInfo;
 import performance.RTTLogger;
 
 import java.io.IOException;
@@ -111,12 +113,14 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
         if (!profesor.canUseMoreSubjects()) {
             currentState = NegotiationState.FINISHED;
             long totalTime = System.currentTimeMillis() - negotiationStartTime;
-            System.out.printf("[TIMING] Professor %s completed all negotiations in %d ms%n",
+            Log.info("[TIMING] Professor %s completed all negotiations in %d ms",
                     profesor.getNombre(), totalTime);
 
             // Print individual subject times
             subjectNegotiationTimes.forEach((subject, time) ->
-                    System.out.printf("[TIMING] Subject %s negotiation took %d ms%n", subject, time));
+                    Log.debug("[TIMING] Subject %s negotiation took %d ms", subject, time));
+            Log.debug(() -> "[CONSTRAINTS] Professor " + profesor.getNombre() + " " +
+                    evaluator.getPipeline().summary());
 
             profesor.finalizarNegociaciones();
             return;
@@ -135,7 +139,7 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
         negotiationStartTime = System.currentTimeMillis();
 
         // Add logging here
-        System.out.printf("[SETUP] Starting assignment for %s (Code: %s) - Required hours: %d%n",
+        Log.debug("[SETUP] Starting assignment for %s (Code: %s) - Required hours: %d",
                 currentSubject.getNombre(),
                 currentSubject.getCodigoAsignatura(),
                 currentSubject.getHoras());
@@ -243,60 +247,46 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
         int requiredHours = currentSubject.getHoras();
         long batchStartTime = System.currentTimeMillis();
         if (bloquesPendientes <= 0 || bloquesPendientes > requiredHours) {
-            System.out.printf("Invalid pending hours state: %d/%d for %s%n",
+            Log.warn("Invalid pending hours state: %d/%d for %s",
                     bloquesPendientes, requiredHours, currentSubject.getNombre());
             return false;
         }
 
-        Map<Day, Integer> dailyAssignments = new HashMap<>();
+        // Mejores bloques entre todas las salas, no en el orden de iteracion de cada una
+        long[] picks = BlockAssignmentPlanner.plan(batchProposals, profesor.getOccupiedMask(),
+                new int[SlotGrid.DAYS], bloquesPendientes);
         int totalAssigned = 0;
 
         // Process each batch proposal (which represents one room's available blocks)
-        for (BatchProposal batchProposal : batchProposals) {
+        for (int i = 0; i < batchProposals.size(); i++) {
+            BatchProposal batchProposal = batchProposals.get(i);
             long proposalStartTime = System.currentTimeMillis();
             List<BatchAssignmentRequest.AssignmentRequest> requests = new ArrayList<>();
 
-            // Process each day's blocks in this room
-            for (Map.Entry<Day, List<BatchProposal.BlockProposal>> entry :
-                    batchProposal.getDayProposals().entrySet()) {
-                Day day = entry.getKey();
-
-                // Skip if day already has 2 blocks
-                if (dailyAssignments.getOrDefault(day, 0) >= 2) continue;
-
-                // Process blocks for this day
-                for (BatchProposal.BlockProposal block : entry.getValue()) {
-                    // Stop if we've assigned all needed blocks
-                    if (totalAssigned >= bloquesPendientes) break;
-
-                    // Skip if block not available
-                    if (!profesor.isBlockAvailable(day, block.getBlock())) continue;
-
-                    requests.add(new BatchAssignmentRequest.AssignmentRequest(
-                            day,
-                            block.getBlock(),
-                            currentSubject.getNombre(),
-                            batchProposal.getSatisfactionScore(),
-                            batchProposal.getRoomCode(),
-                            currentSubject.getVacantes(),
-                            profesor.getNombre()
-                    ));
-
-                    totalAssigned++;
-                    dailyAssignments.merge(day, 1, Integer::sum);
-                }
+            for (long bits = picks[i]; bits != 0; bits &= bits - 1) {
+                int slot = Long.numberOfTrailingZeros(bits);
+                requests.add(new BatchAssignmentRequest.AssignmentRequest(
+                        SlotGrid.dayOf(slot),
+                        SlotGrid.blockOf(slot),
+                        currentSubject.getNombre(),
+                        batchProposal.getBlockScore(slot),
+                        batchProposal.getRoomCode(),
+                        currentSubject.getVacantes(),
+                        profesor.getNombre()
+                ));
+                totalAssigned++;
             }
 
             // Send batch assignment if we have requests
             if (!requests.isEmpty()) {
                 try {
                     if (sendBatchAssignment(requests, batchProposal.getOriginalMessage())) {
-                        System.out.printf("Successfully assigned %d blocks in room %s for %s%n",
+                        Log.debug("Successfully assigned %d blocks in room %s for %s",
                                 requests.size(), batchProposal.getRoomCode(),
                                 currentSubject.getNombre());
 
                         long proposalTime = System.currentTimeMillis() - proposalStartTime;
-                        System.out.printf("[TIMING] Room %s assignment took %d ms - Assigned %d blocks for %s%n",
+                        Log.debug("[TIMING] Room %s assignment took %d ms - Assigned %d blocks for %s",
                                 batchProposal.getRoomCode(), proposalTime, requests.size(),
                                 currentSubject.getNombre());
                     }
@@ -308,7 +298,7 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
         }
 
         long totalBatchTime = System.currentTimeMillis() - batchStartTime;
-        System.out.printf("[TIMING] Total batch assignment time for %s: %d ms - Total blocks assigned: %d%n",
+        Log.debug("[TIMING] Total batch assignment time for %s: %d ms - Total blocks assigned: %d",
                 currentSubject.getNombre(), totalBatchTime, totalAssigned);
 
         //TODO: It is really mandatory to send a REJECT_PROPOSAL?
@@ -323,7 +313,7 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
         // Send acceptance message
         ACLMessage batchAccept = originalMsg.createReply();
         batchAccept.setPerformative(ACLMessage.ACCEPT_PROPOSAL);
-        batchAccept.setContentObject(batchRequest);
+        CodecRegistry.setContent(batchAccept, CodecRegistry.ASSIGNMENT_REQUEST, batchRequest);
 
         /*
         String conversationId = batchAccept.getConversationId();
@@ -351,7 +341,7 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
     // Helper method to handle confirmation waiting
     private boolean waitForConfirmation(MessageTemplate mt, List<BatchAssignmentRequest.AssignmentRequest> requests) {
         if (bloquesPendientes - requests.size() < 0) {
-            System.out.println("WARNING: Assignment would exceed required hours");
+            Log.warn("WARNING: Assignment would exceed required hours");
             return false;
         }
 
@@ -366,7 +356,7 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
                 //profesor.getPerformanceMonitor().recordMessageReceived(confirm, "INFORM");
                 try {
                     BatchAssignmentConfirmation confirmation =
-                            (BatchAssignmentConfirmation) confirm.getContentObject();
+                            CodecRegistry.decode(confirm, BatchAssignmentConfirmation.class);
 
                     for (BatchAssignmentConfirmation.ConfirmedAssignment assignment :
                             confirmation.getConfirmedAssignments()) {
@@ -386,7 +376,7 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
                         );
                     }
                     return true;
-                } catch (UnreadableException e) {
+                } catch (IOException e) {
                     System.err.println("Error reading confirmation: " + e.getMessage());
                     e.printStackTrace();
                     return false;
@@ -517,18 +507,17 @@ public class NegotiationStateBehaviour extends TickerBehaviour {
         cfp.setProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET);
 
         // Build request info
-        String solicitudInfo = String.format("%s,%d,%d,%s,%d,%s,%s,%d",
+        SolicitudInfo solicitudInfo = new SolicitudInfo(
                 sanitizeSubjectName(currentSubject.getNombre()),
                 currentSubject.getVacantes(),
                 currentSubject.getNivel(),
                 currentSubject.getCampus(),
                 bloquesPendientes,
                 assignationData.getSalaAsignada(),
-                assignationData.getUltimoDiaAsignado() != null ?
-                        assignationData.getUltimoDiaAsignado().toString() : "",
+                assignationData.getUltimoDiaAsignado(),
                 assignationData.getUltimoBloqueAsignado());
 
-        cfp.setContent(solicitudInfo);
+        cfp.setContent(solicitudInfo.format());
         cfp.setConversationId("neg-" + profesor.getNombre() + "-" + bloquesPendientes);
 
         return cfp;
@@ -0,0 +1,157 @@
+package behaviours;
+
+import evaluators.ConstraintEvaluator;
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import objetos.Asignatura;
+import objetos.BatchAvailability;
+import objetos.ClassroomAvailability;
+import objetos.helper.BatchProposal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ultimo CFP por lotes de un profesor: la respuesta de cada sala para las asignaturas
+ * [first, first + count). Una sala queda pendiente hasta que responde; si rechaza el CFP se
+ * descarta, para que las asignaturas siguientes del lote no esperen su respuesta.
+ */
+class PrefetchedBatch {
+    private final Map<AID, Room> rooms = new LinkedHashMap<>();
+    private int first = -1;
+    private int count = 0;
+
+    /**
+     * Reemplaza el lote anterior por uno nuevo, aun sin salas.
+     */
+    void start(int first, int count) {
+        rooms.clear();
+        this.first = first;
+        this.count = count;
+    }
+
+    /**
+     * Registra el CFP enviado a la sala; candidates son las asignaturas del lote (bit i =
+     * first + i) que no se descartaron para ella.
+     */
+    void expect(AID room, String conversationId, long candidates) {
+        rooms.put(room, new Room(conversationId, candidates));
+    }
+
+    boolean covers(int subjectIndex) {
+        return first >= 0 && subjectIndex >= first && subjectIndex < first + count;
+    }
+
+    int offsetOf(int subjectIndex) {
+        return subjectIndex - first;
+    }
+
+    int countPending() {
+        int pending = 0;
+        for (Room room : rooms.values()) {
+            if (room.isPending()) {
+                pending++;
+            }
+        }
+        return pending;
+    }
+
+    Room get(AID room) {
+        return rooms.get(room);
+    }
+
+    void remove(AID room) {
+        rooms.remove(room);
+    }
+
+    /**
+     * Sala que aun espera respuesta en esta conversacion, o null si la respuesta es de un
+     * lote anterior o la sala ya respondio.
+     */
+    Room pending(AID sender, String conversationId) {
+        Room room = rooms.get(sender);
+        if (room == null || !room.isPending() || !room.getConversationId().equals(conversationId)) {
+            return null;
+        }
+        return room;
+    }
+
+    /**
+     * Descarta la sala si el REFUSE responde a su CFP pendiente. Retorna false si el REFUSE
+     * no es de este lote (o la sala ya habia respondido).
+     */
+    boolean refuse(AID sender, String conversationId) {
+        if (pending(sender, conversationId) == null) {
+            return false;
+        }
+        rooms.remove(sender);
+        return true;
+    }
+
+    /**
+     * Respuesta de una sala al CFP por lotes, actualizada con las confirmaciones propias.
+     * Mientras la respuesta no llega acumula lo confirmado para descontarlo al recibirla.
+     */
+    static class Room {
+        private final String conversationId;
+        private final long candidates;
+        private BatchAvailability availability;
+        private ACLMessage message;
+
+        private long takenSlots;
+        private int ownConfirmations;
+        // Version de la sala contando las confirmaciones propias posteriores a la respuesta
+        private long expectedVersion;
+
+        Room(String conversationId, long candidates) {
+            this.conversationId = conversationId;
+            this.candidates = candidates;
+        }
+
+        String getConversationId() {
+            return conversationId;
+        }
+
+        boolean isPending() {
+            return availability == null;
+        }
+
+        void fill(BatchAvailability availability, ACLMessage message) {
+            this.availability = availability.withoutSlots(takenSlots);
+            this.message = message;
+            this.expectedVersion = availability.getVersion() + ownConfirmations;
+        }
+
+        /**
+         * true si la sala ya va en una version que no se explica con las confirmaciones propias.
+         */
+        boolean isStale(long observedVersion) {
+            return !isPending() && observedVersion > expectedVersion;
+        }
+
+        BatchProposal proposalFor(int offset, Asignatura subject, int bloquesPendientes) {
+            if (isPending() || subject == null || offset < 0 || offset >= Long.SIZE ||
+                    ((candidates & availability.getEligibleSubjects()) & (1L << offset)) == 0) {
+                return null;
+            }
+
+            ClassroomAvailability sala = availability.toAvailability(
+                    ConstraintEvaluator.allowedBlocksMask(subject.getNivel(), bloquesPendientes));
+            return sala != null ? new BatchProposal(sala, message) : null;
+        }
+
+        void take(long slots) {
+            if (slots == 0) {
+                return;
+            }
+
+            if (isPending()) {
+                takenSlots |= slots;
+                ownConfirmations++;
+            } else {
+                availability = availability.withoutSlots(slots);
+                expectedVersion++;
+            }
+        }
+    }
+}
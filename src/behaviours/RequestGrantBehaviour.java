@@ -0,0 +1,269 @@
+package behaviours;
+
+import agentes.AgenteProfesor;
+import agentes.AgenteSala;
+import constants.enums.Day;
+import df.DFCache;
+import df.RoomCandidateIndex;
+import interfaces.NegotiationInterface;
+import jade.core.AID;
+import jade.core.behaviours.SimpleBehaviour;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPANames;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.MessageTemplate;
+import logging.Log;
+import objetos.Asignatura;
+import objetos.ProfessorSchedule;
+import objetos.RoomCatalog;
+import objetos.helper.BatchAssignmentConfirmation;
+import objetos.helper.CodecRegistry;
+import objetos.helper.GrantRequest;
+import objetos.helper.SlotGrid;
+import performance.AgentMessageLogger;
+import performance.RTTLogger;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Alternativa a NegotiationFSMBehaviour con dos mensajes por sala: el profesor envia un
+ * REQUEST con los requisitos de la asignatura y su horario ocupado, y la sala reserva en
+ * el acto los mejores bloques (INFORM) o rechaza (REFUSE). Las salas se recorren de a una
+ * para no reservar de mas; se repite la pasada mientras alguna sala haya otorgado bloques.
+ */
+public class RequestGrantBehaviour extends SimpleBehaviour implements NegotiationInterface {
+    private static final long serialVersionUID = 1L;
+
+    private static final long TIMEOUT_GRANT = 5000; // 5 seconds
+    private static final int MAX_BLOCKS_PER_DAY = 2;
+
+    private final AgenteProfesor profesor;
+    private final RTTLogger rttLogger = RTTLogger.getInstance();
+    private final AgentMessageLogger messageLogger = AgentMessageLogger.getInstance();
+
+    private final Deque<AID> pendingRooms = new ArrayDeque<>();
+    private final int[] blocksPerDayInPass = new int[SlotGrid.DAYS];
+    private Asignatura currentSubject;
+    private int bloquesPendientes = 0;
+    private boolean progressInPass;
+    private AID lastGrantingRoom;
+
+    private String awaitingConversation; // solicitud en curso, null si no hay
+    private long replyDeadline;
+    private long negotiationStartTime;
+    private boolean finished = false;
+
+    public RequestGrantBehaviour(AgenteProfesor profesor) {
+        super(profesor);
+        this.profesor = profesor;
+    }
+
+    @Override
+    public void onStart() {
+        negotiationStartTime = System.currentTimeMillis();
+    }
+
+    @Override
+    public void action() {
+        if (awaitingConversation != null) {
+            awaitGrant();
+            return;
+        }
+
+        if (currentSubject == null && !startSubject()) {
+            finish();
+            return;
+        }
+
+        if (bloquesPendientes == 0 || (pendingRooms.isEmpty() && !startPass())) {
+            if (bloquesPendientes > 0) {
+                Log.debug("[GRANT] Could not assign %d blocks for %s",
+                        bloquesPendientes, currentSubject.getNombre());
+            }
+            profesor.moveToNextSubject();
+            currentSubject = null;
+            return;
+        }
+
+        sendRequest(pendingRooms.poll());
+    }
+
+    @Override
+    public boolean done() {
+        return finished;
+    }
+
+    private boolean startSubject() {
+        currentSubject = profesor.getCurrentSubject();
+        if (currentSubject == null) {
+            return false;
+        }
+
+        bloquesPendientes = currentSubject.getHoras();
+        lastGrantingRoom = null;
+        progressInPass = true; // fuerza la primera pasada
+        pendingRooms.clear();
+        return true;
+    }
+
+    /**
+     * Nueva pasada por las salas candidatas, solo si la anterior otorgo algo.
+     */
+    private boolean startPass() {
+        if (!progressInPass) {
+            return false;
+        }
+        progressInPass = false;
+        Arrays.fill(blocksPerDayInPass, 0);
+
+        try {
+            // El indice ya entrega las candidatas de menor a mayor capacidad; primero va la
+            // sala que ya otorgo bloques
+            List<DFAgentDescription> candidates = RoomCandidateIndex.of(
+                    DFCache.search(profesor, AgenteSala.SERVICE_NAME)).candidates(currentSubject);
+            for (DFAgentDescription room : candidates) {
+                if (room.getName().equals(lastGrantingRoom)) {
+                    pendingRooms.add(room.getName());
+                }
+            }
+            for (DFAgentDescription room : candidates) {
+                if (!room.getName().equals(lastGrantingRoom)) {
+                    pendingRooms.add(room.getName());
+                }
+            }
+        } catch (Exception e) {
+            Log.error("Error searching rooms for " + profesor.getNombre(), e);
+        }
+
+        return !pendingRooms.isEmpty();
+    }
+
+    private void sendRequest(AID room) {
+        // Dias que ya llegaron al maximo en esta pasada se bloquean completos
+        ProfessorSchedule schedule = profesor.getSchedule();
+        long blocked = schedule.getOccupiedMask();
+        for (Day day : Day.values()) {
+            if (blocksPerDayInPass[day.ordinal()] >= MAX_BLOCKS_PER_DAY) {
+                blocked |= SlotGrid.DAY_MASK << (day.ordinal() * SlotGrid.BLOCKS_PER_DAY);
+            }
+        }
+
+        GrantRequest request = new GrantRequest(
+                currentSubject.getNombre(),
+                profesor.getNombre(),
+                currentSubject.getVacantes(),
+                currentSubject.getNivel(),
+                currentSubject.getCampus(),
+                bloquesPendientes,
+                currentSubject.getActividad(),
+                profesor.getTipoContrato(),
+                blocked,
+                profesor.getSubjectMask(currentSubject.getNombre()),
+                MAX_BLOCKS_PER_DAY,
+                schedule.getOccupiedMask(),
+                schedule.getCampusMasks(RoomCatalog.get().getCampusCount()),
+                schedule.getCampusTransitionDays());
+
+        String conversationId = "grant-" + profesor.getNombre() + "-" +
+                room.getLocalName() + "-" + System.currentTimeMillis();
+        ACLMessage msg = new ACLMessage(ACLMessage.REQUEST);
+        msg.setSender(profesor.getAID());
+        msg.addReceiver(room);
+        msg.setProtocol(FIPANames.InteractionProtocol.FIPA_REQUEST);
+        msg.setConversationId(conversationId);
+        try {
+            CodecRegistry.setContent(msg, CodecRegistry.GRANT_REQUEST, request);
+        } catch (IOException e) {
+            Log.error("Error encoding grant request", e);
+            return;
+        }
+
+        rttLogger.startRequest(
+                myAgent.getLocalName(),
+                conversationId,
+                ACLMessage.REQUEST,
+                room.getLocalName(),
+                null,
+                CodecRegistry.GRANT_REQUEST
+        );
+        messageLogger.logMessageSent(myAgent.getLocalName(), msg);
+        profesor.send(msg);
+
+        awaitingConversation = conversationId;
+        replyDeadline = System.currentTimeMillis() + TIMEOUT_GRANT;
+    }
+
+    private void awaitGrant() {
+        MessageTemplate mt = MessageTemplate.and(
+                MessageTemplate.MatchConversationId(awaitingConversation),
+                MessageTemplate.or(
+                        MessageTemplate.MatchPerformative(ACLMessage.INFORM),
+                        MessageTemplate.MatchPerformative(ACLMessage.REFUSE)
+                )
+        );
+
+        ACLMessage reply = myAgent.receive(mt);
+        if (reply == null) {
+            long remaining = replyDeadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                Log.debug("[GRANT] Timeout waiting for room reply, trying next room");
+                awaitingConversation = null;
+            } else {
+                block(remaining);
+            }
+            return;
+        }
+
+        awaitingConversation = null;
+        messageLogger.logMessageReceived(myAgent.getLocalName(), reply);
+        rttLogger.endRequest(
+                myAgent.getLocalName(),
+                reply.getConversationId(),
+                reply.getPerformative(),
+                reply.getByteSequenceContent().length,
+                true,
+                null,
+                CodecRegistry.GRANT_REQUEST
+        );
+
+        if (reply.getPerformative() != ACLMessage.INFORM) {
+            return;
+        }
+
+        try {
+            BatchAssignmentConfirmation grant = CodecRegistry.decode(reply, BatchAssignmentConfirmation.class);
+            for (BatchAssignmentConfirmation.ConfirmedAssignment assignment : grant.getConfirmedAssignments()) {
+                profesor.updateScheduleInfo(
+                        assignment.getDay(),
+                        assignment.getClassroomCode(),
+                        assignment.getBlock(),
+                        currentSubject.getNombre(),
+                        assignment.getSatisfaction()
+                );
+                bloquesPendientes--;
+                blocksPerDayInPass[assignment.getDay().ordinal()]++;
+                progressInPass = true;
+                lastGrantingRoom = reply.getSender();
+            }
+        } catch (IOException e) {
+            Log.warn("Error reading grant: %s", e.getMessage());
+        }
+    }
+
+    private void finish() {
+        long totalTime = System.currentTimeMillis() - negotiationStartTime;
+        Log.info("[TIMING] Professor %s completed all negotiations in %d ms",
+                profesor.getNombre(), totalTime);
+        finished = true;
+        profesor.finalizarNegociaciones();
+    }
+
+    @Override
+    public int getBloquesPendientes() {
+        return bloquesPendientes;
+    }
+}
@@ -0,0 +1,143 @@
+package behaviours;
+
+import df.RoomCandidateIndex;
+import jade.core.AID;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import objetos.Asignatura;
+import objetos.AvailabilityReplica;
+import objetos.helper.SlotGrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orden en que un profesor contacta a las salas candidatas de una ronda. En vez de enviar el
+ * CFP a todas, se envia a las K mas prometedoras y solo se amplia a las K siguientes si la
+ * ronda no deja propuestas validas.
+ *
+ * El puntaje combina el ajuste de capacidad, los bloques libres conocidos (replica o ultima
+ * respuesta) y la tasa de aceptacion de la sala con este profesor. La sala que ya tiene
+ * bloques de la asignatura va siempre primero. El campus ya lo filtra RoomCandidateIndex.
+ */
+class RoomFanOut {
+    private static final double FIT_WEIGHT = 0.4;
+    private static final double FREE_WEIGHT = 0.3;
+    private static final double ACCEPT_WEIGHT = 0.3;
+    // Sin informacion de bloques libres se asume la mitad
+    private static final double UNKNOWN_FREE = 0.5;
+
+    private final int k;
+    private final Map<AID, RoomStats> stats = new HashMap<>();
+
+    private List<AID> ranked = Collections.emptyList();
+    private int cursor = 0;
+
+    private static class RoomStats {
+        int freeBlocks = -1;
+        int accepts = 0;
+        int confirmed = 0;
+    }
+
+    /**
+     * @param k salas por tanda; 0 o menos contacta a todas de una vez
+     */
+    RoomFanOut(int k) {
+        this.k = k;
+    }
+
+    /**
+     * Ordena las candidatas de la ronda y vuelve al inicio. preferred puede ser null.
+     */
+    void start(Asignatura subject, List<DFAgentDescription> candidates, AID preferred,
+               AvailabilityReplica replica, RoomCandidateIndex index) {
+        int n = candidates.size();
+        List<AID> rooms = new ArrayList<>(n);
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            AID room = candidates.get(i).getName();
+            rooms.add(room);
+            scores[i] = room.equals(preferred)
+                    ? Double.MAX_VALUE
+                    : score(room, subject.getVacantes(), index.getCapacity(room), replica);
+        }
+
+        // Orden estable: a igual puntaje se mantiene el orden por capacidad del indice
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+        ranked = new ArrayList<>(n);
+        for (Integer i : order) {
+            ranked.add(rooms.get(i));
+        }
+        cursor = 0;
+    }
+
+    /**
+     * Siguiente tanda de salas a contactar (vacia si ya se contacto a todas).
+     */
+    List<AID> next() {
+        int end = k > 0 ? Math.min(ranked.size(), cursor + k) : ranked.size();
+        List<AID> batch = ranked.subList(cursor, end);
+        cursor = end;
+        return batch;
+    }
+
+    boolean hasMore() {
+        return cursor < ranked.size();
+    }
+
+    /**
+     * Descarta lo que quedaba de la ronda (la ronda se respondio por otra via).
+     */
+    void clear() {
+        ranked = Collections.emptyList();
+        cursor = 0;
+    }
+
+    /**
+     * Bloques libres que informo la sala en su ultima respuesta (0 si rechazo el CFP).
+     */
+    void observeFreeBlocks(AID room, int freeBlocks) {
+        stats.computeIfAbsent(room, r -> new RoomStats()).freeBlocks = freeBlocks;
+    }
+
+    /**
+     * Resultado de un ACCEPT: confirmed es false si la sala no confirmo ningun bloque.
+     */
+    void recordAccept(AID room, boolean confirmed) {
+        RoomStats roomStats = stats.computeIfAbsent(room, r -> new RoomStats());
+        roomStats.accepts++;
+        if (confirmed) {
+            roomStats.confirmed++;
+        }
+    }
+
+    private double score(AID room, int vacantes, int capacidad, AvailabilityReplica replica) {
+        double fit = capacidad > 0 && vacantes > 0
+                ? (double) Math.min(capacidad, vacantes) / Math.max(capacidad, vacantes)
+                : 0.0;
+
+        RoomStats roomStats = stats.get(room);
+        double free = UNKNOWN_FREE;
+        AvailabilityReplica.Entry entry = replica.get(room);
+        if (entry != null) {
+            free = Long.bitCount(entry.getFreeMask()) / (double) SlotGrid.SLOTS;
+        } else if (roomStats != null && roomStats.freeBlocks >= 0) {
+            free = Math.min(1.0, roomStats.freeBlocks / (double) SlotGrid.SLOTS);
+        }
+
+        // Suavizado de Laplace: una sala sin historial parte en 0.5
+        double acceptance = roomStats != null
+                ? (roomStats.confirmed + 1.0) / (roomStats.accepts + 2.0)
+                : 0.5;
+
+        return FIT_WEIGHT * fit + FREE_WEIGHT * free + ACCEPT_WEIGHT * acceptance;
+    }
+}
@@ -2,4 +2,6 @@ package constants;
 
 public class Commons {
     public static final int MAX_BLOQUE_DIURNO = 9;
+    // Salas con menos capacidad que esto son salas de reunion
+    public static final int MEETING_ROOM_THRESHOLD = 10;
 }
@@ -0,0 +1,45 @@
+package constants;
+
+/**
+ * Opciones de la negociacion seleccionables con propiedades de sistema (-Dclave=valor),
+ * para poder comparar variantes sobre el mismo escenario.
+ */
+public class NegotiationConfig {
+    // Las salas calculan la satisfaccion de cada bloque y el profesor solo combina y ordena
+    public static final boolean ROOM_SIDE_SCORING =
+            Boolean.parseBoolean(System.getProperty("timetabling.roomScoring", "true"));
+
+    // Asignaturas listadas en un mismo CFP por lotes (1 = un CFP por asignatura)
+    public static final int CFP_BATCH_SIZE =
+            Math.max(1, Math.min(Long.SIZE, Integer.getInteger("timetabling.cfpBatchSize", 6)));
+
+    // El profesor se suscribe a las salas y usa su replica local en vez de CFPs cuando puede
+    public static final boolean SUBSCRIBE_AVAILABILITY =
+            Boolean.parseBoolean(System.getProperty("timetabling.subscribe", "true"));
+
+    // Protocolo del profesor: contract-net (CFP/PROPOSE/ACCEPT/INFORM) o request-grant (REQUEST/INFORM)
+    public static final boolean REQUEST_GRANT_PROTOCOL =
+            "request-grant".equalsIgnoreCase(System.getProperty("timetabling.protocol", "contract-net"));
+
+    // Profesores negociando a la vez (1 = turno estricto, uno tras otro; los benchmarks pueden subirlo)
+    public static final int PROFESSOR_WINDOW =
+            Math.max(1, Integer.getInteger("timetabling.professorWindow", 1));
+
+    // Timeout de espera = p99 de los RTT medidos x factor, acotado (factor 0 = timeout fijo)
+    public static final double TIMEOUT_RTT_FACTOR =
+            Double.parseDouble(System.getProperty("timetabling.timeoutFactor", "4"));
+
+    // Piso del timeout adaptativo en milisegundos
+    public static final long TIMEOUT_FLOOR_MS = Long.getLong("timetabling.timeoutFloorMs", 50L);
+
+    // Mientras confirma una asignatura el profesor ya pide por lotes la disponibilidad de las siguientes
+    public static final boolean PIPELINE_PREFETCH =
+            Boolean.parseBoolean(System.getProperty("timetabling.pipeline", "true"));
+
+    // Salas contactadas por tanda en los CFP por asignatura; se amplia si no hay propuestas validas (0 = todas)
+    public static final int FANOUT_K = Math.max(0, Integer.getInteger("timetabling.fanOut", 5));
+
+    // Con mas propuestas que esto el profesor las evalua en paralelo en el ForkJoinPool comun (0 = nunca)
+    public static final int PARALLEL_EVALUATION_THRESHOLD =
+            Math.max(0, Integer.getInteger("timetabling.parallelEvaluation", 128));
+}
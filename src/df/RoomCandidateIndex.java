@@ -0,0 +1,158 @@
+package df;
+
+import constants.Commons;
+import jade.core.AID;
+import jade.domain.FIPAAgentManagement.DFAgentDescription;
+import jade.domain.FIPAAgentManagement.ServiceDescription;
+import objetos.Asignatura;
+import objetos.RoomCatalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice de las salas publicadas en el DF: agrupadas por id de campus y ordenadas por
+ * capacidad, con los datos tomados de RoomCatalog (el DF solo aporta el AID). Las salas
+ * candidatas de una asignatura son un rango contiguo de su campus (salas de reunion al
+ * inicio), asi que se obtienen con dos busquedas binarias.
+ *
+ * Es inmutable; of() reutiliza el ultimo indice mientras DFCache entregue la misma lista.
+ */
+public class RoomCandidateIndex {
+    private static volatile RoomCandidateIndex last;
+
+    private final List<DFAgentDescription> source;
+    private final RoomCatalog catalog;
+    // Por id de campus del catalogo
+    private final CampusRooms[] byCampus;
+    private final Map<AID, Integer> roomIds = new HashMap<>();
+
+    private RoomCandidateIndex(List<DFAgentDescription> rooms, RoomCatalog catalog) {
+        this.source = rooms;
+        this.catalog = catalog;
+
+        List<List<DFAgentDescription>> grouped = new ArrayList<>(catalog.getCampusCount());
+        for (int campus = 0; campus < catalog.getCampusCount(); campus++) {
+            grouped.add(new ArrayList<>());
+        }
+        for (DFAgentDescription room : rooms) {
+            Iterator<?> services = room.getAllServices();
+            if (!services.hasNext()) {
+                continue;
+            }
+            // El nombre del servicio es el codigo de la sala (AgenteSala.registrarEnDF)
+            int id = catalog.idOf(((ServiceDescription) services.next()).getName());
+            if (id == RoomCatalog.UNKNOWN) {
+                continue;
+            }
+
+            roomIds.put(room.getName(), id);
+            grouped.get(catalog.getCampusId(id)).add(room);
+        }
+
+        byCampus = new CampusRooms[grouped.size()];
+        for (int campus = 0; campus < byCampus.length; campus++) {
+            List<DFAgentDescription> campusRooms = grouped.get(campus);
+            campusRooms.sort(Comparator.comparingInt((DFAgentDescription room) -> getCapacity(room.getName()))
+                    .thenComparing(room -> room.getName().getLocalName()));
+            byCampus[campus] = new CampusRooms(campusRooms, this);
+        }
+    }
+
+    /**
+     * Indice para la lista de salas entregada por DFCache; se reconstruye solo si la lista
+     * o el catalogo cambiaron.
+     */
+    public static RoomCandidateIndex of(List<DFAgentDescription> rooms) {
+        RoomCatalog catalog = RoomCatalog.get();
+        RoomCandidateIndex index = last;
+        if (index == null || index.source != rooms || index.catalog != catalog) {
+            index = new RoomCandidateIndex(rooms, catalog);
+            last = index;
+        }
+        return index;
+    }
+
+    /**
+     * Salas que podrian alojar la asignatura, de menor a mayor capacidad. Mismas reglas que el
+     * antiguo canQuickReject: mismo campus, sala de reunion solo para menos de 10 vacantes
+     * (con 20% de tolerancia) y capacidad suficiente para las demas.
+     */
+    public List<DFAgentDescription> candidates(Asignatura subject) {
+        int campus = catalog.campusIdOf(subject.getCampus());
+        if (campus == RoomCatalog.UNKNOWN) {
+            return Collections.emptyList();
+        }
+
+        CampusRooms rooms = byCampus[campus];
+        int vacantes = subject.getVacantes();
+        if (vacantes < Commons.MEETING_ROOM_THRESHOLD) {
+            int from = rooms.lowerBound((int) Math.ceil(vacantes * 0.8));
+            return rooms.range(from, rooms.firstRegular);
+        }
+        int from = Math.max(rooms.firstRegular, rooms.lowerBound(vacantes));
+        return rooms.range(from, rooms.size());
+    }
+
+    /**
+     * Id de la sala en RoomCatalog, o RoomCatalog.UNKNOWN si no esta en el indice.
+     */
+    public int getRoomId(AID room) {
+        Integer id = roomIds.get(room);
+        return id != null ? id : RoomCatalog.UNKNOWN;
+    }
+
+    /**
+     * Capacidad de la sala segun el catalogo, o -1 si no esta en el indice.
+     */
+    public int getCapacity(AID room) {
+        int id = getRoomId(room);
+        return id != RoomCatalog.UNKNOWN ? catalog.getCapacity(id) : -1;
+    }
+
+    private static class CampusRooms {
+        private final List<DFAgentDescription> rooms;
+        private final int[] capacities;
+        // Primera sala que no es sala de reunion
+        private final int firstRegular;
+
+        CampusRooms(List<DFAgentDescription> sortedRooms, RoomCandidateIndex index) {
+            this.rooms = Collections.unmodifiableList(new ArrayList<>(sortedRooms));
+            this.capacities = new int[sortedRooms.size()];
+            for (int i = 0; i < capacities.length; i++) {
+                capacities[i] = index.getCapacity(sortedRooms.get(i).getName());
+            }
+            this.firstRegular = lowerBound(Commons.MEETING_ROOM_THRESHOLD);
+        }
+
+        int size() {
+            return capacities.length;
+        }
+
+        /**
+         * Primer indice con capacidad >= minCapacity.
+         */
+        int lowerBound(int minCapacity) {
+            int low = 0;
+            int high = capacities.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (capacities[mid] < minCapacity) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        List<DFAgentDescription> range(int from, int to) {
+            return from < to ? rooms.subList(from, to) : Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package evaluators;
+
+import objetos.helper.BatchProposal;
+
+/**
+ * Regla que ConstraintEvaluator aplica a cada propuesta. Las HARD descartan la propuesta
+ * (accepts) y las SOFT suman o restan al puntaje (score). Deben ser puras y thread-safe: se
+ * llaman desde la evaluacion paralela y ConstraintPipeline cambia el orden de las HARD segun
+ * su costo y tasa de rechazo, asi que ninguna puede depender del resultado de otra.
+ */
+public interface Constraint {
+    enum Type { HARD, SOFT }
+
+    String getName();
+
+    Type getType();
+
+    /**
+     * HARD: true si la propuesta cumple la regla.
+     */
+    default boolean accepts(BatchProposal proposal, ConstraintContext context) {
+        return true;
+    }
+
+    /**
+     * SOFT: aporte al puntaje de la propuesta. Cuando se llama, la satisfaccion de la
+     * propuesta ya esta calculada.
+     */
+    default int score(BatchProposal proposal, ConstraintContext context) {
+        return 0;
+    }
+}
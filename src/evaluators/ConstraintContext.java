@@ -0,0 +1,58 @@
+package evaluators;
+
+import agentes.AgenteProfesor;
+import constants.enums.TipoContrato;
+import objetos.ActiveSubjectState;
+import objetos.Asignatura;
+import objetos.ProfessorSchedule;
+import objetos.RoomCatalog;
+
+/**
+ * Datos de la asignatura y del horario que usa una evaluacion, leidos una vez al inicio.
+ * Las reglas solo leen el horario y ActiveSubjectState: ambos los modifica el hilo del
+ * agente, que no vuelve a tocarlos hasta que la evaluacion (paralela o no) termina.
+ */
+public final class ConstraintContext {
+    private final Asignatura subject;
+    private final int campusId;
+    private final ActiveSubjectState state;
+    private final ProfessorSchedule schedule;
+    private final TipoContrato tipoContrato;
+    private final int bloquesPendientes;
+
+    ConstraintContext(AgenteProfesor profesor) {
+        this.subject = profesor.getCurrentSubject();
+        this.campusId = RoomCatalog.get().campusIdOf(subject.getCampus());
+        this.state = profesor.getActiveSubjectState();
+        this.schedule = profesor.getSchedule();
+        this.tipoContrato = state.getTipoContrato();
+        this.bloquesPendientes = profesor.getBloquesPendientesInNegotiation();
+    }
+
+    public Asignatura getSubject() {
+        return subject;
+    }
+
+    /**
+     * Id en RoomCatalog del campus de la asignatura.
+     */
+    public int getCampusId() {
+        return campusId;
+    }
+
+    public ActiveSubjectState getState() {
+        return state;
+    }
+
+    public ProfessorSchedule getSchedule() {
+        return schedule;
+    }
+
+    public TipoContrato getTipoContrato() {
+        return tipoContrato;
+    }
+
+    public int getBloquesPendientes() {
+        return bloquesPendientes;
+    }
+}
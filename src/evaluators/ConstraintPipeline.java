@@ -0,0 +1,234 @@
+package evaluators;
+
+import objetos.helper.BatchProposal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reglas de ConstraintEvaluator compiladas en dos etapas: las HARD se aplican en orden hasta
+ * el primer rechazo y las SOFT se suman. Cada regla lleva contadores de evaluaciones y
+ * rechazos (LongAdder, por la evaluacion paralela). El tiempo de las HARD se mide solo en
+ * una de cada TIMING_SAMPLE evaluaciones, para no leer el reloj dos veces por regla y
+ * propuesta; las SOFT no se miden porque no se reordenan.
+ *
+ * reorder() pone primero las reglas HARD con menor costo por rechazo (ns por evaluacion /
+ * tasa de rechazo), que es el orden que minimiza el costo esperado de filtros
+ * independientes. El resultado no cambia: un AND de reglas puras no depende del orden.
+ * Las SOFT se suman siempre todas, asi que no se reordenan.
+ */
+public class ConstraintPipeline {
+    // Evaluaciones de reglas HARD entre dos reordenamientos
+    private static final long REORDER_INTERVAL = 1024;
+    // Una de cada TIMING_SAMPLE evaluaciones HARD se cronometra
+    private static final int TIMING_SAMPLE = 64;
+
+    private final List<Stage> stages;
+    private final Stage[] soft;
+    private volatile Stage[] hard;
+    private long evaluationsAtLastReorder = 0;
+
+    public ConstraintPipeline(List<Constraint> constraints) {
+        List<Stage> all = new ArrayList<>(constraints.size());
+        List<Stage> hardStages = new ArrayList<>();
+        List<Stage> softStages = new ArrayList<>();
+        for (Constraint constraint : constraints) {
+            Stage stage = new Stage(constraint, all.size());
+            all.add(stage);
+            (constraint.getType() == Constraint.Type.HARD ? hardStages : softStages).add(stage);
+        }
+        this.stages = Collections.unmodifiableList(all);
+        this.hard = hardStages.toArray(new Stage[0]);
+        this.soft = softStages.toArray(new Stage[0]);
+    }
+
+    /**
+     * Reglas de siempre: tipo de sala, campus, ventanas horarias y huecos (HARD) y los
+     * puntajes de campus, horario, compactacion, satisfaccion, capacidad, sala de reunion
+     * y distribucion por dia (SOFT).
+     */
+    public static ConstraintPipeline defaults() {
+        List<Constraint> constraints = new ArrayList<>(HardConstraints.defaults());
+        constraints.addAll(SoftConstraints.defaults());
+        return new ConstraintPipeline(constraints);
+    }
+
+    boolean accepts(BatchProposal proposal, ConstraintContext context) {
+        if (ThreadLocalRandom.current().nextInt(TIMING_SAMPLE) == 0) {
+            return acceptsTimed(proposal, context);
+        }
+        for (Stage stage : hard) {
+            boolean accepted = stage.constraint.accepts(proposal, context);
+            stage.record(!accepted);
+            if (!accepted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean acceptsTimed(BatchProposal proposal, ConstraintContext context) {
+        for (Stage stage : hard) {
+            long start = System.nanoTime();
+            boolean accepted = stage.constraint.accepts(proposal, context);
+            stage.recordTimed(System.nanoTime() - start, !accepted);
+            if (!accepted) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int score(BatchProposal proposal, ConstraintContext context) {
+        int total = 0;
+        for (Stage stage : soft) {
+            total += stage.constraint.score(proposal, context);
+            stage.evaluations.increment();
+        }
+        return total;
+    }
+
+    /**
+     * Reordena las reglas HARD si hubo suficientes evaluaciones desde la ultima vez. Solo se
+     * llama entre evaluaciones, desde el hilo del agente.
+     */
+    void maybeReorder() {
+        long evaluations = 0;
+        for (Stage stage : hard) {
+            evaluations += stage.evaluations.sum();
+        }
+        if (evaluations - evaluationsAtLastReorder < REORDER_INTERVAL) {
+            return;
+        }
+        evaluationsAtLastReorder = evaluations;
+        reorder();
+    }
+
+    /**
+     * Ordena las reglas HARD por costo por rechazo; una regla aun sin evaluaciones cronometradas
+     * va primero para medirla y a igual rango se mantiene el orden de registro.
+     */
+    public void reorder() {
+        Stage[] current = hard;
+        double[] ranks = new double[current.length];
+        for (int i = 0; i < current.length; i++) {
+            ranks[i] = current[i].rank();
+        }
+
+        Integer[] order = new Integer[current.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> ranks[i])
+                .thenComparingInt(i -> current[i].position));
+
+        Stage[] reordered = new Stage[current.length];
+        for (int i = 0; i < order.length; i++) {
+            reordered[i] = current[order[i]];
+        }
+        hard = reordered;
+    }
+
+    /**
+     * Nombres de las reglas HARD en el orden en que se aplican ahora.
+     */
+    public List<String> getHardOrder() {
+        List<String> names = new ArrayList<>();
+        for (Stage stage : hard) {
+            names.add(stage.getName());
+        }
+        return names;
+    }
+
+    /**
+     * Una linea por regla con sus contadores, para el log al terminar la negociacion.
+     */
+    public String summary() {
+        StringBuilder sb = new StringBuilder("order=").append(getHardOrder());
+        for (Stage stage : stages) {
+            sb.append(String.format(Locale.ROOT, "%n  %-5s %-20s evals=%d rejects=%d",
+                    stage.constraint.getType(), stage.getName(), stage.getEvaluations(),
+                    stage.getRejections()));
+            if (stage.getTimedEvaluations() > 0) {
+                sb.append(String.format(Locale.ROOT, " time~%.3fms (%d sampled)",
+                        stage.getEstimatedNanos() / 1e6, stage.getTimedEvaluations()));
+            }
+        }
+        return sb.toString();
+    }
+
+    public static final class Stage {
+        private final Constraint constraint;
+        private final int position;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder timedEvaluations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Stage(Constraint constraint, int position) {
+            this.constraint = constraint;
+            this.position = position;
+        }
+
+        private void record(boolean rejected) {
+            evaluations.increment();
+            if (rejected) {
+                rejections.increment();
+            }
+        }
+
+        private void recordTimed(long elapsed, boolean rejected) {
+            record(rejected);
+            timedEvaluations.increment();
+            nanos.add(elapsed);
+        }
+
+        /**
+         * Costo por rechazo: ns por evaluacion (de la muestra cronometrada) / tasa de rechazo
+         * (de todas las evaluaciones).
+         */
+        private double rank() {
+            long timed = timedEvaluations.sum();
+            if (timed == 0) {
+                return 0.0;
+            }
+            long evals = evaluations.sum();
+            long rejects = rejections.sum();
+            if (rejects == 0) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double costPerEvaluation = (double) nanos.sum() / timed;
+            return costPerEvaluation / ((double) rejects / evals);
+        }
+
+        public String getName() {
+            return constraint.getName();
+        }
+
+        public long getEvaluations() {
+            return evaluations.sum();
+        }
+
+        public long getRejections() {
+            return rejections.sum();
+        }
+
+        public long getTimedEvaluations() {
+            return timedEvaluations.sum();
+        }
+
+        /**
+         * Tiempo total estimado, escalando la muestra a todas las evaluaciones.
+         */
+        public double getEstimatedNanos() {
+            long timed = timedEvaluations.sum();
+            return timed == 0 ? 0.0 : (double) nanos.sum() * evaluations.sum() / timed;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package evaluators;
+
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+import objetos.ProfessorSchedule;
+import objetos.helper.BatchProposal;
+import objetos.helper.SlotGrid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reglas duras de una propuesta. Cada una es independiente de las demas, asi que
+ * ConstraintPipeline puede aplicarlas en cualquier orden.
+ */
+public final class HardConstraints {
+    private static final Day[] DAYS = Day.values();
+
+    /**
+     * Salas de reunion solo para cursos pequeños y cursos pequeños no en salas enormes.
+     */
+    public static final Constraint ROOM_TYPE = new Hard("room-type") {
+        @Override
+        public boolean accepts(BatchProposal proposal, ConstraintContext context) {
+            return ConstraintEvaluator.isRoomTypeAllowed(proposal.getCapacity(), context.getSubject().getVacantes());
+        }
+    };
+
+    /**
+     * En otro campus: el dia no puede tener ya un cambio de campus y los bloques propuestos
+     * no pueden quedar junto a bloques de otro campus.
+     */
+    public static final Constraint CAMPUS = new Hard("campus") {
+        @Override
+        public boolean accepts(BatchProposal proposal, ConstraintContext context) {
+            // If same campus, always valid
+            if (proposal.getCampusId() == context.getCampusId()) {
+                return true;
+            }
+
+            ProfessorSchedule schedule = context.getSchedule();
+            for (Day dia : DAYS) {
+                if (!proposal.hasDay(dia)) {
+                    continue;
+                }
+
+                // Check if there's already a campus transition this day
+                if (schedule.hasCampusTransition(dia)) {
+                    return false;
+                }
+
+                // Check if there's at least one empty block between different campuses
+                if (hasOtherCampusNeighbor(schedule, dia, proposal.getSlotMask(), proposal.getCampusId())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    /**
+     * Al menos un bloque propuesto en el rango diurno, respetando la regla del bloque 9 y la
+     * ventana del nivel. Van juntas porque deben cumplirse en el mismo bloque.
+     */
+    public static final Constraint TIME_WINDOW = new Hard("time-window") {
+        @Override
+        public boolean accepts(BatchProposal proposal, ConstraintContext context) {
+            int allowed = ConstraintEvaluator.allowedDayBits(context.getSubject().getNivel() % 2 == 1,
+                    context.getBloquesPendientes(), proposal.getSatisfactionScore());
+            return (proposal.getSlotMask() & SlotGrid.everyDay(allowed)) != 0;
+        }
+    };
+
+    /**
+     * Jornada completa y media jornada: no mas de un bloque libre acumulado en el dia.
+     */
+    public static final Constraint GAPS = new Hard("gaps") {
+        @Override
+        public boolean accepts(BatchProposal proposal, ConstraintContext context) {
+            // Solo aplicar para jornada completa y media jornada
+            if (context.getTipoContrato() == TipoContrato.JORNADA_PARCIAL) {
+                return true;
+            }
+
+            ProfessorSchedule schedule = context.getSchedule();
+            for (Day dia : DAYS) {
+                if (proposal.hasDay(dia) &&
+                        !validateConsecutiveGaps(schedule.getDayBits(dia), SlotGrid.dayBits(proposal.getSlotMask(), dia))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    };
+
+    private static final List<Constraint> DEFAULTS =
+            Collections.unmodifiableList(Arrays.asList(ROOM_TYPE, CAMPUS, TIME_WINDOW, GAPS));
+
+    private HardConstraints() {
+    }
+
+    public static List<Constraint> defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * CAMPUS para los bloques de un dia en una sala de otro campus, con el horario del
+     * profesor como mascaras del dia: otherCampusBits son sus bloques en un campus distinto
+     * al de la sala. La usa AgenteSala al otorgar bloques (protocolo request/grant).
+     */
+    public static boolean allowsOtherCampus(boolean transitionDay, int otherCampusBits, int proposedBits) {
+        // Un bloque propuesto no puede quedar junto (bloque - 1 o + 1) a uno de otro campus
+        return !transitionDay && (((proposedBits << 1) | (proposedBits >>> 1)) & otherCampusBits) == 0;
+    }
+
+    /**
+     * GAPS para un dia, con los bloques asignados y propuestos como mascaras del dia.
+     */
+    public static boolean allowsGaps(TipoContrato contrato, int assignedBits, int proposedBits) {
+        return contrato == TipoContrato.JORNADA_PARCIAL || validateConsecutiveGaps(assignedBits, proposedBits);
+    }
+
+    /**
+     * true si algun bloque propuesto del dia queda junto a un bloque de otro campus.
+     */
+    private static boolean hasOtherCampusNeighbor(ProfessorSchedule schedule, Day dia, long proposalMask, int campusId) {
+        int bits = SlotGrid.dayBits(proposalMask, dia);
+        while (bits != 0) {
+            int bloque = Integer.numberOfTrailingZeros(bits) + 1;
+            bits &= bits - 1;
+            if (schedule.isOtherCampus(dia, bloque - 1, campusId) ||
+                    schedule.isOtherCampus(dia, bloque + 1, campusId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Recorre en orden los bloques asignados del dia mas los propuestos (un bloque en ambos
+     * cuenta dos veces, como al unir las listas) y rechaza mas de un bloque libre acumulado.
+     */
+    private static boolean validateConsecutiveGaps(int assignedBits, int proposedBits) {
+        int all = assignedBits | proposedBits;
+        int duplicated = assignedBits & proposedBits;
+
+        int consecutiveGaps = 0;
+        int previous = -1;
+        while (all != 0) {
+            int offset = Integer.numberOfTrailingZeros(all);
+            all &= all - 1;
+
+            if (previous >= 0) {
+                int gap = offset - previous - 1;
+                if (gap > 0) {
+                    consecutiveGaps += gap;
+                    if (consecutiveGaps > 1) {
+                        return false; // Más de un bloque libre consecutivo
+                    }
+                } else {
+                    consecutiveGaps = 0;
+                }
+            }
+            if ((duplicated & (1 << offset)) != 0) {
+                // El mismo bloque repetido: gap negativo
+                consecutiveGaps = 0;
+            }
+            previous = offset;
+        }
+
+        return true;
+    }
+
+    private abstract static class Hard implements Constraint {
+        private final String name;
+
+        Hard(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.HARD;
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package evaluators;
+
+import constants.Commons;
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+import objetos.ActiveSubjectState;
+import objetos.Asignatura;
+import objetos.ProfessorSchedule;
+import objetos.RoomCatalog;
+import objetos.helper.BatchProposal;
+import objetos.helper.SlotGrid;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Componentes del puntaje de una propuesta. El total es la suma de todos (enteros), asi que
+ * el orden en que se apliquen no cambia el resultado.
+ */
+public final class SoftConstraints {
+    private static final Day[] DAYS = Day.values();
+    // Bloques 1-4 de un dia (manana)
+    private static final int MORNING_BITS = 0b1111;
+    private static final int MEETING_ROOM_THRESHOLD = Commons.MEETING_ROOM_THRESHOLD;
+
+    /**
+     * Campus consistency (high priority).
+     */
+    public static final Constraint CAMPUS = new Soft("campus-score") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            return proposal.getCampusId() == context.getCampusId() ? 10000 : -10000;
+        }
+    };
+
+    /**
+     * Time preference based on year: niveles impares en la mañana, pares en la tarde.
+     */
+    public static final Constraint TIME_PREFERENCE = new Soft("time-preference") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            boolean isOddYear = context.getSubject().getNivel() % 2 == 1;
+            int score = 0;
+            for (Day day : DAYS) {
+                int bits = SlotGrid.dayBits(proposal.getSlotMask(), day);
+                int preferred = isOddYear ? bits & MORNING_BITS : bits & ~MORNING_BITS;
+                score += Integer.bitCount(preferred) * 3000;
+            }
+            return score;
+        }
+    };
+
+    /**
+     * Bloques propuestos de un mismo dia juntos o con un bloque libre entre ellos.
+     */
+    public static final Constraint COMPACTNESS = new Soft("compactness") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            if (context.getTipoContrato() == TipoContrato.JORNADA_PARCIAL) {
+                return 0;
+            }
+
+            int score = 0;
+            for (Day day : DAYS) {
+                int bits = SlotGrid.dayBits(proposal.getSlotMask(), day);
+                if (bits == 0) {
+                    continue;
+                }
+                int previous = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                while (bits != 0) {
+                    int current = Integer.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if (current - previous <= 2) { // Bloques consecutivos o con 1 bloque libre
+                        score += 5000;  // Alto bonus para favorecer horarios compactos
+                    } else {
+                        score -= 8000;  // Penalización por gaps grandes
+                    }
+                    previous = current;
+                }
+            }
+            return score;
+        }
+    };
+
+    /**
+     * Base satisfaction score.
+     */
+    public static final Constraint SATISFACTION = new Soft("satisfaction") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            return proposal.getSatisfactionScore() * 10;
+        }
+    };
+
+    /**
+     * Capacity score - prefer rooms that closely match needed capacity.
+     */
+    public static final Constraint CAPACITY_FIT = new Soft("capacity-fit") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            return -Math.abs(proposal.getCapacity() - context.getSubject().getVacantes()) * 100;
+        }
+    };
+
+    /**
+     * Cursos pequeños: bonus en sala de reunion y penalizacion progresiva en salas regulares.
+     */
+    public static final Constraint MEETING_ROOM = new Soft("meeting-room") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            Asignatura subject = context.getSubject();
+            if (subject.getVacantes() >= MEETING_ROOM_THRESHOLD) {
+                return 0;
+            }
+
+            if (proposal.getCapacity() < MEETING_ROOM_THRESHOLD) {
+                // Perfect match - high bonus, plus optimal size match
+                int sizeDiff = Math.abs(proposal.getCapacity() - subject.getVacantes());
+                return sizeDiff <= 2 ? 15000 + 5000 : 15000;
+            }
+            // Using regular room for small class - apply penalty but don't reject
+            int oversize = proposal.getCapacity() - subject.getVacantes();
+            return -oversize * 500;
+        }
+    };
+
+    /**
+     * Por cada dia propuesto: reparto de la asignatura en dias distintos, misma sala que el
+     * resto de sus bloques y penalizaciones por otro campus.
+     */
+    public static final Constraint DAY_DISTRIBUTION = new Soft("day-distribution") {
+        @Override
+        public int score(BatchProposal proposal, ConstraintContext context) {
+            ActiveSubjectState state = context.getState();
+            ProfessorSchedule schedule = context.getSchedule();
+            int currentCampusId = context.getCampusId();
+            boolean otherCampus = proposal.getCampusId() != currentCampusId;
+            int mostUsedRoom = state.getMostUsedRoom();
+            int roomCount = state.getRoomUsage(proposal.getRoomId());
+
+            int score = 0;
+            for (Day proposalDay : DAYS) {
+                if (!proposal.hasDay(proposalDay)) {
+                    continue;
+                }
+                int dayUsage = state.getDayUsage(proposalDay);
+
+                // Day-based scoring
+                score -= dayUsage * 6000;  // Penalty for same-day assignments
+
+                if (dayUsage == 0) {
+                    score += 8000;  // Bonus for new days
+                }
+
+                // Room consistency scoring
+                if (mostUsedRoom != RoomCatalog.UNKNOWN && proposal.getRoomId() == mostUsedRoom) {
+                    score += 7000;
+                }
+
+                // Apply campus and block penalties
+                if (otherCampus) {
+                    score -= 10000;
+
+                    int bits = SlotGrid.dayBits(proposal.getSlotMask(), proposalDay);
+                    while (bits != 0) {
+                        int bloque = Integer.numberOfTrailingZeros(bits) + 1;
+                        bits &= bits - 1;
+                        if (schedule.isOtherCampus(proposalDay, bloque - 1, currentCampusId) ||
+                                schedule.isOtherCampus(proposalDay, bloque + 1, currentCampusId)) {
+                            score -= 8000;
+                        }
+                    }
+                }
+
+                score -= roomCount * 1500;
+
+                if (dayUsage >= 2) {
+                    score -= 6000;
+                }
+            }
+            return score;
+        }
+    };
+
+    private static final List<Constraint> DEFAULTS = Collections.unmodifiableList(Arrays.asList(
+            CAMPUS, TIME_PREFERENCE, COMPACTNESS, SATISFACTION, CAPACITY_FIT, MEETING_ROOM, DAY_DISTRIBUTION));
+
+    private SoftConstraints() {
+    }
+
+    public static List<Constraint> defaults() {
+        return DEFAULTS;
+    }
+
+    private abstract static class Soft implements Constraint {
+        private final String name;
+
+        Soft(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.SOFT;
+        }
+    }
+}
@@ -4,12 +4,19 @@ import constants.Commons;
 import constants.enums.Actividad;
 import constants.enums.Day;
 import constants.enums.TipoContrato;
+import objetos.helper.SlotGrid;
 
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Satisfaccion (1-10) de ubicar un curso en un bloque de una sala. Los factores que solo
+ * dependen de dominios pequeños (capacidad/vacantes, nivel, bloque y actividad) se calculan
+ * una vez al cargar la clase con las reglas de evaluateX y quedan en tablas ya ponderadas; por
+ * consulta solo se calculan los terminos que dependen del horario (campus y continuidad).
+ * Las sumas se hacen en el mismo orden que la formula original, asi que el resultado es el
+ * mismo bit a bit.
+ */
 public class TimetablingEvaluator {
     // Constants for room occupancy thresholds
     private static final double OPTIMAL_OCCUPANCY_MIN = 0.75;
@@ -26,6 +33,73 @@ public class TimetablingEvaluator {
 
     public static final int MEETING_ROOM_THRESHOLD = 10;
 
+    // Salas mas grandes que esto se evaluan sin tabla
+    private static final int MAX_TABLE_CAPACITY = 256;
+
+    private static final Actividad[] ACTIVIDADES = Actividad.values();
+
+    // [vacantes - MIN_STUDENTS][capacidad - vacantes], para MIN_STUDENTS <= vacantes <= MAX_STUDENTS
+    private static final double[][] CAPACITY_TERMS = new double[MAX_STUDENTS - MIN_STUDENTS + 1][];
+    // [primer año / impar / par][bloque 1-4 / 5-9 / fuera de rango]
+    private static final double[][] TIME_SLOT_TERMS = new double[3][3];
+    // [ordinal de la actividad, o ACTIVIDADES.length si es null][bloque <= 4 / bloque >= 5]
+    private static final double[][] ACTIVITY_TERMS = new double[ACTIVIDADES.length + 1][2];
+    private static final double SAME_CAMPUS_TERM = evaluateCampus("", "", 0L) * CAMPUS_WEIGHT;
+    private static final double OTHER_CAMPUS_TERM = evaluateCampus("", " ", 0L) * CAMPUS_WEIGHT;
+    private static final double OTHER_CAMPUS_WITH_BLOCKS_TERM = evaluateCampus("", " ", 1L) * CAMPUS_WEIGHT;
+
+    // Por patron diario de 9 bits: cantidad de factores (4 bits bajos) y luego un bit por
+    // factor en el orden en que se aplican (1 = 0.6, 0 = 0.9)
+    private static final int[] GAP_FACTORS = new int[1 << SlotGrid.BLOCKS_PER_DAY];
+
+    static {
+        for (int students = MIN_STUDENTS; students <= MAX_STUDENTS; students++) {
+            double[] terms = new double[Math.max(0, MAX_TABLE_CAPACITY - students + 1)];
+            for (int extra = 0; extra < terms.length; extra++) {
+                terms[extra] = evaluateCapacity(students + extra, students) * CAPACITY_WEIGHT;
+            }
+            CAPACITY_TERMS[students - MIN_STUDENTS] = terms;
+        }
+
+        int[] niveles = {1, 3, 4};
+        int[] bloques = {1, 5, 0};
+        for (int n = 0; n < niveles.length; n++) {
+            for (int b = 0; b < bloques.length; b++) {
+                TIME_SLOT_TERMS[n][b] = evaluateTimeSlot(niveles[n], bloques[b]) * TIME_SLOT_WEIGHT;
+            }
+        }
+
+        for (int a = 0; a <= ACTIVIDADES.length; a++) {
+            Actividad activity = a < ACTIVIDADES.length ? ACTIVIDADES[a] : null;
+            ACTIVITY_TERMS[a][0] = evaluateActivityType(activity, 1) * ACTIVITY_TYPE_WEIGHT;
+            ACTIVITY_TERMS[a][1] = evaluateActivityType(activity, 5) * ACTIVITY_TYPE_WEIGHT;
+        }
+
+        for (int bits = 0; bits < GAP_FACTORS.length; bits++) {
+            GAP_FACTORS[bits] = gapFactors(bits);
+        }
+    }
+
+    /**
+     * Terminos de campus y continuidad de un curso, que no dependen del bloque. Se calculan
+     * una vez por solicitud y se reutilizan al puntuar todos sus bloques.
+     */
+    public static final class ScheduleTerms {
+        private final double campus;
+        private final double continuity;
+
+        private ScheduleTerms(double campus, double continuity) {
+            this.campus = campus;
+            this.continuity = continuity;
+        }
+    }
+
+    public static ScheduleTerms scheduleTerms(String campus, String preferredCampus, long existingBlocks,
+                                              TipoContrato contrato) {
+        return new ScheduleTerms(campusTerm(campus, preferredCampus, existingBlocks),
+                continuityTerm(existingBlocks, contrato));
+    }
+
     public static int calculateSatisfaction(
             int roomCapacity,
             int studentsCount,
@@ -36,7 +110,58 @@ public class TimetablingEvaluator {
             Map<Day, List<Integer>> existingBlocks,
             TipoContrato contrato,
             Actividad activity) {
+        return calculateSatisfaction(roomCapacity, studentsCount, nivel, campus, preferredCampus,
+                block, SlotGrid.toMask(existingBlocks), contrato, activity);
+    }
+
+    /**
+     * Igual que la version con mapa, pero con los bloques ya asignados como mascara SlotGrid.
+     * Es la que usan las salas al puntuar cada bloque de un CFP.
+     */
+    public static int calculateSatisfaction(
+            int roomCapacity,
+            int studentsCount,
+            int nivel,
+            String campus,
+            String preferredCampus,
+            int block,
+            long existingBlocks,
+            TipoContrato contrato,
+            Actividad activity) {
+
+        int fixed = fixedSatisfaction(roomCapacity, studentsCount);
+        if (fixed != 0) {
+            return fixed;
+        }
+
+        return weightedSatisfaction(roomCapacity, studentsCount, nivel, block, activity,
+                campusTerm(campus, preferredCampus, existingBlocks), continuityTerm(existingBlocks, contrato));
+    }
+
+    /**
+     * Igual que la version con mascara, con los terminos del horario ya calculados.
+     */
+    public static int calculateSatisfaction(
+            int roomCapacity,
+            int studentsCount,
+            int nivel,
+            int block,
+            Actividad activity,
+            ScheduleTerms terms) {
+
+        int fixed = fixedSatisfaction(roomCapacity, studentsCount);
+        if (fixed != 0) {
+            return fixed;
+        }
+
+        return weightedSatisfaction(roomCapacity, studentsCount, nivel, block, activity,
+                terms.campus, terms.continuity);
+    }
 
+    /**
+     * Casos que no usan el promedio ponderado, o 0 si corresponde calcularlo.
+     */
+    private static int fixedSatisfaction(int roomCapacity, int studentsCount) {
         // Critical capacity violation - when students exceed room capacity
         if (studentsCount > roomCapacity) {
             return 1; // This is a hard constraint violation
@@ -62,25 +187,99 @@ public class TimetablingEvaluator {
             return 2; // Should be split into parallel sections
         }
 
-        double capacityScore = evaluateCapacity(roomCapacity, studentsCount);
-        double timeSlotScore = evaluateTimeSlot(nivel, block);
-        double campusScore = evaluateCampus(campus, preferredCampus, existingBlocks);
-        double continuityScore = evaluateContinuity(existingBlocks, contrato);
-        double activityScore = evaluateActivityType(activity, block);
+        return 0;
+    }
 
-        // Calculate weighted average
+    private static int weightedSatisfaction(int roomCapacity, int studentsCount, int nivel, int block,
+                                            Actividad activity, double campusTerm, double continuityTerm) {
+        // Calculate weighted average (mismo orden de suma que con los factores sin tabla)
         double weightedScore = (
-                capacityScore * CAPACITY_WEIGHT +
-                        timeSlotScore * TIME_SLOT_WEIGHT +
-                        campusScore * CAMPUS_WEIGHT +
-                        continuityScore * CONTINUITY_WEIGHT +
-                        activityScore * ACTIVITY_TYPE_WEIGHT
+                capacityTerm(roomCapacity, studentsCount) +
+                        timeSlotTerm(nivel, block) +
+                        campusTerm +
+                        continuityTerm +
+                        activityTerm(activity, block)
         ) * 10;
 
         // Round to nearest integer and ensure score is between 1-10
         return Math.max(1, Math.min(10, (int) Math.round(weightedScore)));
     }
 
+    private static double capacityTerm(int roomCapacity, int studentsCount) {
+        if (roomCapacity > MAX_TABLE_CAPACITY) {
+            return evaluateCapacity(roomCapacity, studentsCount) * CAPACITY_WEIGHT;
+        }
+        return CAPACITY_TERMS[studentsCount - MIN_STUDENTS][roomCapacity - studentsCount];
+    }
+
+    private static double timeSlotTerm(int nivel, int block) {
+        int nivelClass = nivel <= 2 ? 0 : (nivel % 2 == 1 ? 1 : 2);
+        int blockClass = block < 1 || block > Commons.MAX_BLOQUE_DIURNO ? 2 : (block <= 4 ? 0 : 1);
+        return TIME_SLOT_TERMS[nivelClass][blockClass];
+    }
+
+    private static double activityTerm(Actividad activity, int block) {
+        return ACTIVITY_TERMS[activity != null ? activity.ordinal() : ACTIVIDADES.length][block <= 4 ? 0 : 1];
+    }
+
+    private static double campusTerm(String campus, String preferredCampus, long existingBlocks) {
+        if (campus.equals(preferredCampus)) {
+            return SAME_CAMPUS_TERM;
+        }
+        return existingBlocks != 0 ? OTHER_CAMPUS_WITH_BLOCKS_TERM : OTHER_CAMPUS_TERM;
+    }
+
+    /**
+     * evaluateContinuity con los factores de cada dia tomados de GAP_FACTORS. Se multiplican
+     * en el mismo orden (dia y bloque) porque el redondeo depende del orden.
+     */
+    private static double continuityTerm(long existingBlocks, TipoContrato tipoContrato) {
+        if (tipoContrato == TipoContrato.JORNADA_PARCIAL) {
+            return 1.0 * CONTINUITY_WEIGHT; // No continuity restrictions for part-time
+        }
+
+        double score = 1.0;
+        for (int d = 0; d < SlotGrid.DAYS; d++) {
+            int factors = GAP_FACTORS[(int) ((existingBlocks >>> (d * SlotGrid.BLOCKS_PER_DAY)) & SlotGrid.DAY_MASK)];
+            int count = factors & 0xF;
+            for (int i = 0; i < count; i++) {
+                score *= ((factors >>> (4 + i)) & 1) != 0 ? 0.6 : 0.9;
+            }
+        }
+        return score * CONTINUITY_WEIGHT;
+    }
+
+    /**
+     * Factores de continuidad de un dia, codificados para GAP_FACTORS.
+     */
+    private static int gapFactors(int bits) {
+        if (Integer.bitCount(bits) < 2) {
+            return 0;
+        }
+
+        int count = 0;
+        int flags = 0;
+        int previous = Integer.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+        while (bits != 0) {
+            int current = Integer.numberOfTrailingZeros(bits);
+            bits &= bits - 1;
+            int gap = current - previous - 1;
+            previous = current;
+
+            if (gap > 1) {
+                // Penalize more than one free block
+                flags |= 1 << count;
+                count++;
+            } else if (gap == 1) {
+                // One free block is acceptable but not optimal
+                count++;
+            }
+            // Consecutive blocks maintain score = 1.0
+        }
+        return count | (flags << 4);
+    }
+
     private static double evaluateCapacity(int roomCapacity, int studentsCount) {
         if (studentsCount < MEETING_ROOM_THRESHOLD) {
             if (roomCapacity < MEETING_ROOM_THRESHOLD) {
@@ -167,14 +366,12 @@ public class TimetablingEvaluator {
     private static double evaluateCampus(
             String campus,
             String preferredCampus,
-            Map<Day, List<Integer>> existingBlocks) {
+            long existingBlocks) {
 
         // Constraint 4: Campus transitions
         if (!campus.equals(preferredCampus)) {
             // Check if there are already classes in different campuses
-            boolean hasOtherCampus = existingBlocks.values().stream()
-                    .flatMap(List::stream)
-                    .count() > 0;
+            boolean hasOtherCampus = existingBlocks != 0;
 
             if (hasOtherCampus) {
                 return 0.5; // Penalty for multiple campus transitions
@@ -183,35 +380,4 @@ public class TimetablingEvaluator {
 
         return campus.equals(preferredCampus) ? 1.0 : 0.7;
     }
-
-    private static double evaluateContinuity(Map<Day, List<Integer>> existingBlocks,
-                                             TipoContrato tipoContrato) {
-        if (tipoContrato == TipoContrato.JORNADA_PARCIAL) {
-            return 1.0; // No continuity restrictions for part-time
-        }
-
-        double score = 1.0;
-        for (List<Integer> blocks : existingBlocks.values()) {
-            if (blocks.size() < 2) continue;
-
-            List<Integer> sortedBlocks = new ArrayList<>(blocks);
-            Collections.sort(sortedBlocks);
-
-            // Evaluate gaps between blocks
-            for (int i = 1; i < sortedBlocks.size(); i++) {
-                int gap = sortedBlocks.get(i) - sortedBlocks.get(i-1) - 1;
-
-                if (gap > 1) {
-                    // Penalize more than one free block
-                    score *= 0.6;
-                } else if (gap == 1) {
-                    // One free block is acceptable but not optimal
-                    score *= 0.9;
-                }
-                // Consecutive blocks maintain score = 1.0
-            }
-        }
-
-        return score;
-    }
-}
\ No newline at end of file
+}
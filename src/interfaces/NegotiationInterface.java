@@ -0,0 +1,8 @@
+package interfaces;
+
+/**
+ * Comportamiento de negociacion de un profesor, independiente del protocolo usado.
+ */
+public interface NegotiationInterface {
+    int getBloquesPendientes();
+}
@@ -8,4 +8,5 @@ public interface SalaDataInterface {
     String getCodigo();
     String getCampus();
     Map<Day, List<AsignacionSala>> getHorarioOcupado();
+    long getVersion();
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package json_stuff;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import logging.Log;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
@@ -79,7 +80,7 @@ public class JSONHelper {
 
         try (FileWriter file = new FileWriter(finalPath + fileName)) {
             file.write(formatJsonString(jsonString));
-            System.out.println("Archivo " + fileName + " generado exitosamente.");
+            Log.info("Archivo " + fileName + " generado exitosamente.");
         } catch (IOException e) {
             e.printStackTrace();
         }
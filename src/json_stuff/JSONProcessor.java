@@ -1,18 +1,19 @@
 package json_stuff;
 
+import logging.Log;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
 public class JSONProcessor {
     public static JSONArray prepararParalelos(JSONArray profesoresJson) {
-        System.out.println("\nIniciando procesamiento de paralelos...");
+        Log.info("Iniciando procesamiento de paralelos...");
         
         for (int i = 0; i < profesoresJson.size(); i++) {
             JSONObject profesor = (JSONObject) profesoresJson.get(i);
             JSONArray asignaturas = (JSONArray) profesor.get("Asignaturas");
 
             if(asignaturas == null) {
-                System.out.println("Profesor sin asignaturas: " + profesor.get("Nombre"));
+                Log.debug(() -> "Profesor sin asignaturas: " + profesor.get("Nombre"));
                 continue;
             }
 
@@ -23,7 +24,7 @@ public class JSONProcessor {
                 Long vacantes = (Long) asignatura.get("Vacantes");
 
                 if (vacantes != null && vacantes >= 70) {
-                    System.out.println("Procesando asignatura con 70+ vacantes: " +
+                    Log.debug(() -> "Procesando asignatura con 70+ vacantes: " +
                                      asignatura.get("CodigoAsignatura") +
                                      " - Vacantes originales: " + vacantes);
 
@@ -36,7 +37,7 @@ public class JSONProcessor {
                     processedAsignaturas.add(paraleloA);
                     processedAsignaturas.add(paraleloB);
 
-                    System.out.println("Creados paralelos A y B con 35 vacantes cada uno");
+                    Log.debug("Creados paralelos A y B con 35 vacantes cada uno");
                 } else {
                     processedAsignaturas.add(asignatura);
                 }
@@ -46,7 +47,7 @@ public class JSONProcessor {
             profesor.put("Asignaturas", processedAsignaturas);
         }
         
-        System.out.println("Procesamiento de paralelos completado\n");
+        Log.info("Procesamiento de paralelos completado");
         return profesoresJson;
     }
     
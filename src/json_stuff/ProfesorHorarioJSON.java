@@ -1,10 +1,12 @@
 package json_stuff;
 
+import logging.Log;
 import objetos.Asignatura;
+import objetos.ProfessorSchedule;
+import objetos.helper.SlotGrid;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -53,46 +55,24 @@ public class ProfesorHorarioJSON {
         this.scenario = scenario;
     }
 
-    public void agregarHorarioProfesor(String nombre, JSONObject horario, List<Asignatura> originalAsignaturas) {
+    /**
+     * Materializa el horario del profesor una sola vez, recorriendo las asignaciones en el
+     * orden en que se confirmaron. Las asignaturas completas se cuentan por indice.
+     */
+    public void agregarHorarioProfesor(String nombre, ProfessorSchedule horario, List<Asignatura> originalAsignaturas) {
         try {
             JSONObject profesorJSON = new JSONObject();
             profesorJSON.put("Nombre", nombre);
 
-            JSONArray asignaturas = (JSONArray) horario.get("Asignaturas");
-            if (asignaturas == null) {
-                asignaturas = new JSONArray();
-            }
-
-            // Group assignments by instance
-            Map<String, Integer> assignedHoursByInstance = new HashMap<>();
-            for (Object obj : asignaturas) {
-                JSONObject asignatura = (JSONObject) obj;
-                String instanceKey = String.format("%s-%s-%d",
-                        asignatura.get("Nombre"),
-                        asignatura.get("CodigoAsignatura"),
-                        ((Number) asignatura.get("Instance")).intValue());
-                assignedHoursByInstance.merge(instanceKey, 1, Integer::sum);
-            }
-
-            // Count completed instances by comparing with original requirements
-            int completedSubjects = 0;
-            for (int i = 0; i < originalAsignaturas.size(); i++) {
-                Asignatura original = originalAsignaturas.get(i);
-                String instanceKey = String.format("%s-%s-%d",
-                        original.getNombre(),
-                        original.getCodigoAsignatura(),
-                        i);
-
-                int assigned = assignedHoursByInstance.getOrDefault(instanceKey, 0);
-                int required = original.getHoras();
+            JSONArray asignaturas = toAsignaturasJSON(horario, originalAsignaturas);
+            int completedSubjects = horario.countCompletedSubjects(originalAsignaturas);
 
-                if (assigned >= required) {
-                    completedSubjects++;
+            if (Log.isDebugEnabled()) {
+                for (int i = 0; i < originalAsignaturas.size(); i++) {
+                    Asignatura original = originalAsignaturas.get(i);
+                    Log.debug("Subject: %s, Instance: %d, Required: %d, Assigned: %d",
+                            original.getNombre(), i, original.getHoras(), horario.getAssignedHours(i));
                 }
-
-                // Debug output
-                System.out.printf("Subject: %s, Instance: %d, Required: %d, Assigned: %d%n",
-                        original.getNombre(), i, required, assigned);
             }
 
             profesorJSON.put("Asignaturas", asignaturas);
@@ -106,9 +86,32 @@ public class ProfesorHorarioJSON {
                 flushUpdates(false);
             }
         } catch (Exception e) {
-            System.err.println("Error agregando horario del profesor: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error agregando horario del profesor", e);
+        }
+    }
+
+    /**
+     * Arreglo "Asignaturas" con el mismo formato que se generaba bloque a bloque durante la negociacion.
+     */
+    public static JSONArray toAsignaturasJSON(ProfessorSchedule horario, List<Asignatura> originalAsignaturas) {
+        JSONArray asignaturas = new JSONArray();
+        for (int i = 0; i < horario.getAssignmentCount(); i++) {
+            int slot = horario.getAssignmentSlot(i);
+            int subject = horario.getSubjectIndexAt(slot);
+            Asignatura original = originalAsignaturas.get(subject);
+
+            JSONObject asignatura = new JSONObject();
+            asignatura.put("Nombre", original.getNombre());
+            asignatura.put("Sala", horario.getRoomAt(slot));
+            asignatura.put("Bloque", SlotGrid.blockOf(slot));
+            asignatura.put("Dia", SlotGrid.dayOf(slot).getDisplayName());
+            asignatura.put("Satisfaccion", horario.getSatisfactionAt(slot));
+            asignatura.put("CodigoAsignatura", original.getCodigoAsignatura());
+            asignatura.put("Instance", horario.getInstance(subject));
+            asignatura.put("Actividad", original.getActividad().toString());
+            asignaturas.add(asignatura);
         }
+        return asignaturas;
     }
 
     private void flushUpdates(boolean isFinalWrite) {
@@ -138,8 +141,7 @@ public class ProfesorHorarioJSON {
             updateCount.set(0);
 
         } catch (Exception e) {
-            System.err.println("Error writing professor schedules to file: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error writing professor schedules to file", e);
         } finally {
             writeLock.unlock();
         }
@@ -150,7 +152,7 @@ public class ProfesorHorarioJSON {
             String nombreProf = (String) profesor.get("Nombre");
             JSONArray asignaturasProf = (JSONArray) profesor.get("Asignaturas");
             int solicitudes = ((Number) profesor.get("Solicitudes")).intValue();
-            System.out.println("Profesor " + nombreProf + ": " +
+            Log.debug(() -> "Profesor " + nombreProf + ": " +
                     asignaturasProf.size() + "/" + solicitudes +
                     " asignaturas asignadas");
         }
@@ -158,9 +160,9 @@ public class ProfesorHorarioJSON {
 
     // Called by AgenteSupervisor for final write
     public void generarArchivoJSON() {
-        System.out.println("Generando archivo JSON final de profesores...");
+        Log.info("Generando archivo JSON final de profesores...");
         flushUpdates(true);
-        System.out.println(FINAL_JSON_NAME + " generado con " +
+        Log.info(FINAL_JSON_NAME + " generado con " +
                 profesoresHorarios.size() + " profesores");
     }
 
@@ -4,6 +4,7 @@ import constants.enums.Day;
 import interfaces.SalaDataInterface;
 import jade.wrapper.AgentController;
 import jade.wrapper.StaleProxyException;
+import logging.Log;
 import objetos.AsignacionSala;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
@@ -57,7 +58,7 @@ public class SalaHorarioJSON {
 
     public void agregarHorarioSala(String codigo, String campus, Map<Day, List<AsignacionSala>> horario) {
         try {
-            System.out.println("[DEBUG] Adding/updating schedule for room " + codigo);
+            Log.debug(() -> "[DEBUG] Adding/updating schedule for room " + codigo);
 
             // Count assignments before creating JSON
             int assignmentCount = 0;
@@ -69,13 +70,13 @@ public class SalaHorarioJSON {
                 }
             }
 
-            System.out.println("[DEBUG] Room " + codigo + " has " + assignmentCount + " total assignments");
+            Log.debug("[DEBUG] Room %s has %d total assignments", codigo, assignmentCount);
 
             // Create JSON for this update
             JSONObject salaJSON = createSalaJSON(codigo, campus, horario);
             JSONArray asignaturas = (JSONArray) salaJSON.get("Asignaturas");
 
-            System.out.println("[DEBUG] Created JSON object for room " + codigo +
+            Log.debug(() -> "[DEBUG] Created JSON object for room " + codigo +
                     " with " + asignaturas.size() + " assignments");
 
             // Store update in memory
@@ -84,12 +85,11 @@ public class SalaHorarioJSON {
 
             // Check if we should write to disk
             if (updateCount.incrementAndGet() >= WRITE_THRESHOLD) {
-                System.out.println("[DEBUG] Threshold reached, flushing updates");
+                Log.debug("[DEBUG] Threshold reached, flushing updates");
                 flushUpdates();
             }
         } catch (Exception e) {
-            System.err.println("[ERROR] Error adding classroom schedule for " + codigo + ": " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error adding classroom schedule for " + codigo, e);
         }
     }
 
@@ -146,13 +146,13 @@ public class SalaHorarioJSON {
 
             if (!jsonArray.isEmpty()) {
                 JSONHelper.writeJsonFile(FINAL_JSON_NAME, jsonArray, scenario);
-                System.out.println("Generated final Horarios_salas_" + scenario + ".json with " + jsonArray.size() + " salas");
+                Log.info("Generated final Horarios_salas_" + scenario + ".json with " + jsonArray.size() + " salas");
 
                 for (Object obj : jsonArray) {
                     JSONObject sala = (JSONObject) obj;
                     String codigo = (String) sala.get("Codigo");
                     JSONArray asignaturas = (JSONArray) sala.get("Asignaturas");
-                    System.out.println("Room " + codigo + ": " +
+                    Log.debug(() -> "Room " + codigo + ": " +
                             (asignaturas != null ? asignaturas.size() : 0) + " assignments");
                 }
             }
@@ -176,15 +176,14 @@ public class SalaHorarioJSON {
 
             if (!jsonArray.isEmpty()) {
                 JSONHelper.writeJsonFile(FINAL_JSON_NAME, jsonArray, scenario);
-                System.out.println("Successfully wrote " + pendingUpdates.size() + " classroom schedules to file");
+                Log.debug(() -> "Successfully wrote " + pendingUpdates.size() + " classroom schedules to file");
             }
 
             pendingUpdates.clear();
             updateCount.set(0);
 
         } catch (Exception e) {
-            System.err.println("Error writing classroom schedules to file: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error writing classroom schedules to file", e);
         } finally {
             writeLock.unlock();
         }
@@ -211,7 +210,7 @@ public class SalaHorarioJSON {
             for (JSONObject sala : pendingUpdates.values()) {
                 String codigo = (String) sala.get("Codigo");
                 JSONArray asignaturas = (JSONArray) sala.get("Asignaturas");
-                System.out.println("Room " + codigo + ": " +
+                Log.debug(() -> "Room " + codigo + ": " +
                         (asignaturas != null ? asignaturas.size() : 0) + " assignments");
             }
         } finally {
@@ -222,7 +221,7 @@ public class SalaHorarioJSON {
     public void generateSupervisorFinalReport(List<AgentController> salaControllers) {
         writeLock.lock();
         try {
-            System.out.println("[SUPERVISOR] Generating comprehensive final report for " +
+            Log.info("[SUPERVISOR] Generating comprehensive final report for " +
                     salaControllers.size() + " classrooms");
 
             JSONArray jsonArray = new JSONArray();
@@ -247,11 +246,11 @@ public class SalaHorarioJSON {
                         JSONObject salaJSON = createSalaJSON(roomCode, campus, horario);
                         jsonArray.add(salaJSON);
 
-                        System.out.println("[SUPERVISOR] Retrieved data for room " + roomCode +
+                        Log.debug(() -> "[SUPERVISOR] Retrieved data for room " + roomCode +
                                 " - Found " + countAssignments(horario) + " assignments");
                     }
                 } catch (StaleProxyException e) {
-                    System.err.println("[SUPERVISOR] Error accessing sala agent: " + e.getMessage());
+                    Log.warn("[SUPERVISOR] Error accessing sala agent: %s", e.getMessage());
                 }
             }
 
@@ -261,11 +260,11 @@ public class SalaHorarioJSON {
                     // Get from pending updates if available
                     if (pendingUpdates.containsKey(roomCode)) {
                         jsonArray.add(pendingUpdates.get(roomCode));
-                        System.out.println("[SUPERVISOR] Used pending update data for room " + roomCode);
+                        Log.debug(() -> "[SUPERVISOR] Used pending update data for room " + roomCode);
                     } else {
                         // Create empty entry as last resort
                         jsonArray.add(createEmptySalaJSON(roomCode));
-                        System.out.println("[SUPERVISOR] Created empty entry for room " + roomCode);
+                        Log.debug(() -> "[SUPERVISOR] Created empty entry for room " + roomCode);
                     }
                 }
             }
@@ -274,7 +273,7 @@ public class SalaHorarioJSON {
             if (!jsonArray.isEmpty()) {
                 //JSONHelper.writeJsonFile("Horarios_salas.json", jsonArray);
                 JSONHelper.writeJsonFile(FINAL_JSON_NAME, jsonArray, scenario);
-                System.out.println("[SUPERVISOR] Generated " + FINAL_JSON_NAME +
+                Log.info("[SUPERVISOR] Generated " + FINAL_JSON_NAME +
                         jsonArray.size() + " salas and " +
                         countTotalAssignments(jsonArray) + " total assignments with scenario " + scenario);
             }
@@ -0,0 +1,115 @@
+package logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Buffer circular de capacidad fija con varios productores (hilos de agentes) y un solo
+ * consumidor que escribe los mensajes en System.out (ERROR en System.err) por lotes. Si el
+ * buffer se llena, las entradas nuevas se descartan y se cuentan, nunca se bloquea al agente.
+ * Con el buffer vacio el escritor queda detenido (LockSupport.park) hasta que un productor
+ * publica la primera entrada.
+ */
+final class AsyncAppender {
+    private static final int CAPACITY = 1 << 14;
+    private static final int MASK = CAPACITY - 1;
+
+    private static final class Holder {
+        static final AsyncAppender INSTANCE = new AsyncAppender();
+    }
+
+    static final class Entry {
+        final LogLevel level;
+        final String message;
+
+        Entry(LogLevel level, String message) {
+            this.level = level;
+            this.message = message;
+        }
+    }
+
+    private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+    private final AtomicLong tail = new AtomicLong(); // siguiente posicion a reservar
+    private volatile long head = 0;                   // siguiente posicion a consumir
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+
+    private AsyncAppender() {
+        writer = new Thread(this::run, "log-appender");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "log-appender-flush"));
+    }
+
+    static AsyncAppender getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    void append(Entry entry) {
+        long seq;
+        do {
+            seq = tail.get();
+            if (seq - head >= CAPACITY) {
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(seq, seq + 1));
+
+        slots.set((int) (seq & MASK), entry);
+
+        // Si el escritor aun no pasa de esta posicion, el buffer estaba vacio para el y puede
+        // estar detenido: se despierta. Si ya la paso, la entrada ya se escribio.
+        if (head == seq) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void run() {
+        StringBuilder out = new StringBuilder(4096);
+        StringBuilder err = new StringBuilder(256);
+        while (true) {
+            if (drain(out, err) == 0) {
+                // Un unpark anterior al park hace que retorne de inmediato, no se pierde
+                LockSupport.park(this);
+            }
+        }
+    }
+
+    /**
+     * Vacia el buffer; lo llama el hilo escritor o el hook de cierre cuando ya no se escribe.
+     */
+    synchronized void flush() {
+        drain(new StringBuilder(4096), new StringBuilder(256));
+    }
+
+    private synchronized int drain(StringBuilder out, StringBuilder err) {
+        int count = 0;
+        long position = head;
+        Entry entry;
+        while ((entry = slots.get((int) (position & MASK))) != null) {
+            slots.set((int) (position & MASK), null);
+            head = ++position;
+            (entry.level == LogLevel.ERROR ? err : out).append(entry.message).append(System.lineSeparator());
+            count++;
+        }
+
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            out.append("[LOG] ").append(lost).append(" messages dropped (buffer full)")
+                    .append(System.lineSeparator());
+        }
+
+        if (out.length() > 0) {
+            System.out.print(out);
+            System.out.flush();
+            out.setLength(0);
+        }
+        if (err.length() > 0) {
+            System.err.print(err);
+            System.err.flush();
+            err.setLength(0);
+        }
+        return count;
+    }
+}
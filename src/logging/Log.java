@@ -0,0 +1,116 @@
+package logging;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Fachada de logging para los caminos calientes de los agentes. El nivel se fija al
+ * arrancar con -Dtimetabling.logLevel=DEBUG|INFO|WARN|ERROR|OFF (INFO por defecto).
+ * Bajo el nivel activo una llamada solo compara un entero. Sobre el nivel, el mensaje (Supplier
+ * o formato con argumentos) se arma en el hilo que llama, con el estado de ese momento, y
+ * solo la escritura queda para el hilo del AsyncAppender. ERROR se escribe en System.err.
+ */
+public final class Log {
+    private static final int LEVEL = parseLevel(System.getProperty("timetabling.logLevel", "INFO")).ordinal();
+
+    private Log() {
+    }
+
+    public static boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= LEVEL && level != LogLevel.OFF;
+    }
+
+    public static boolean isDebugEnabled() {
+        return LEVEL <= LogLevel.DEBUG.ordinal();
+    }
+
+    public static void debug(String message) {
+        log(LogLevel.DEBUG, message, null, null);
+    }
+
+    public static void debug(String format, Object... args) {
+        log(LogLevel.DEBUG, format, args, null);
+    }
+
+    public static void debug(Supplier<String> message) {
+        log(LogLevel.DEBUG, null, null, message);
+    }
+
+    public static void info(String message) {
+        log(LogLevel.INFO, message, null, null);
+    }
+
+    public static void info(String format, Object... args) {
+        log(LogLevel.INFO, format, args, null);
+    }
+
+    public static void info(Supplier<String> message) {
+        log(LogLevel.INFO, null, null, message);
+    }
+
+    public static void warn(String message) {
+        log(LogLevel.WARN, message, null, null);
+    }
+
+    public static void warn(String format, Object... args) {
+        log(LogLevel.WARN, format, args, null);
+    }
+
+    public static void error(String message) {
+        log(LogLevel.ERROR, message, null, null);
+    }
+
+    public static void error(String format, Object... args) {
+        log(LogLevel.ERROR, format, args, null);
+    }
+
+    /**
+     * Mensaje con la traza del error, en lugar de printStackTrace.
+     */
+    public static void error(String message, Throwable error) {
+        if (LogLevel.ERROR.ordinal() < LEVEL) {
+            return;
+        }
+        StringWriter trace = new StringWriter();
+        error.printStackTrace(new PrintWriter(trace));
+        AsyncAppender.getInstance().append(new AsyncAppender.Entry(LogLevel.ERROR,
+                message + System.lineSeparator() + trace.toString().trim()));
+    }
+
+    /**
+     * Escribe lo pendiente; se usa al terminar la aplicacion.
+     */
+    public static void flush() {
+        AsyncAppender.getInstance().flush();
+    }
+
+    private static void log(LogLevel level, String format, Object[] args, Supplier<String> supplier) {
+        if (level.ordinal() < LEVEL) {
+            return;
+        }
+        String message;
+        if (supplier != null) {
+            message = supplier.get();
+        } else if (args == null || args.length == 0) {
+            message = format;
+        } else {
+            // Se formatea aqui: los argumentos pueden ser estado mutable del agente
+            try {
+                message = String.format(format, args);
+            } catch (RuntimeException e) {
+                message = "[LOG] Could not format message: " + format;
+            }
+        }
+        AsyncAppender.getInstance().append(new AsyncAppender.Entry(level, message));
+    }
+
+    private static LogLevel parseLevel(String value) {
+        try {
+            return LogLevel.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return LogLevel.INFO;
+        }
+    }
+}
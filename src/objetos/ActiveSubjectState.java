@@ -0,0 +1,106 @@
+package objetos;
+
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+import objetos.helper.SlotGrid;
+
+/**
+ * Agregados de la asignatura que el profesor esta negociando, para que ConstraintEvaluator
+ * los lea en O(1) por propuesta: bloques ya asignados (todas las instancias con ese nombre),
+ * uso de cada sala, sala mas usada y tipo de contrato. AgenteProfesor los actualiza al
+ * confirmar un bloque y al pasar a la siguiente asignatura; el costo de actualizar depende
+ * solo de los bloques de la asignatura, no del historial del horario.
+ */
+public class ActiveSubjectState {
+    private final TipoContrato tipoContrato;
+    // Por id de RoomCatalog
+    private final int[] roomUsage;
+
+    private String subjectName;
+    private long subjectMask;
+    private int mostUsedRoom = RoomCatalog.UNKNOWN;
+
+    public ActiveSubjectState(TipoContrato tipoContrato, RoomCatalog catalog) {
+        this.tipoContrato = tipoContrato;
+        this.roomUsage = new int[catalog.size()];
+    }
+
+    /**
+     * Cambia la asignatura activa. Si es otra instancia de la misma asignatura se conservan
+     * los agregados; si no, se recalculan desde lo que el horario ya tenga para ese nombre.
+     */
+    public void startSubject(String name, ProfessorSchedule schedule) {
+        if (name != null && name.equals(subjectName)) {
+            return;
+        }
+        subjectName = name;
+        recount(name != null ? schedule.getSubjectMask(name) : 0L, schedule);
+    }
+
+    /**
+     * Registra un bloque recien confirmado. Se ignora si no es de la asignatura activa.
+     */
+    public void onAssigned(String name, Day day, int block, ProfessorSchedule schedule) {
+        if (name == null || !name.equals(subjectName) || !SlotGrid.isValidBlock(block)) {
+            return;
+        }
+        recount(subjectMask | SlotGrid.bit(day, block), schedule);
+    }
+
+    public TipoContrato getTipoContrato() {
+        return tipoContrato;
+    }
+
+    public long getSubjectMask() {
+        return subjectMask;
+    }
+
+    /**
+     * Bloques de la asignatura activa en el dia.
+     */
+    public int getDayUsage(Day day) {
+        return Integer.bitCount(SlotGrid.dayBits(subjectMask, day));
+    }
+
+    /**
+     * Bloques de la asignatura activa en la sala (id de RoomCatalog).
+     */
+    public int getRoomUsage(int roomId) {
+        return roomId >= 0 && roomId < roomUsage.length ? roomUsage[roomId] : 0;
+    }
+
+    /**
+     * Sala mas usada por la asignatura activa, la primera en llegar al maximo recorriendo
+     * los slots en orden, o RoomCatalog.UNKNOWN si aun no hay bloques.
+     */
+    public int getMostUsedRoom() {
+        return mostUsedRoom;
+    }
+
+    private void recount(long newMask, ProfessorSchedule schedule) {
+        // Solo se limpian las salas que usaba la mascara anterior
+        for (long bits = subjectMask; bits != 0; bits &= bits - 1) {
+            int room = roomAt(schedule, Long.numberOfTrailingZeros(bits));
+            if (room != RoomCatalog.UNKNOWN) {
+                roomUsage[room] = 0;
+            }
+        }
+
+        subjectMask = newMask;
+        mostUsedRoom = RoomCatalog.UNKNOWN;
+        for (long bits = newMask; bits != 0; bits &= bits - 1) {
+            int room = roomAt(schedule, Long.numberOfTrailingZeros(bits));
+            if (room != RoomCatalog.UNKNOWN) {
+                int count = ++roomUsage[room];
+                if (mostUsedRoom == RoomCatalog.UNKNOWN || count > roomUsage[mostUsedRoom]) {
+                    mostUsedRoom = room;
+                }
+            }
+        }
+    }
+
+    private int roomAt(ProfessorSchedule schedule, int slot) {
+        int room = schedule.getRoomId(SlotGrid.dayOf(slot), SlotGrid.blockOf(slot));
+        return room < roomUsage.length ? room : RoomCatalog.UNKNOWN;
+    }
+}
@@ -0,0 +1,88 @@
+package objetos;
+
+import jade.core.AID;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copia local de la disponibilidad de las salas a las que el profesor esta suscrito.
+ * Se alimenta con las notificaciones de las salas y con las confirmaciones propias,
+ * asi que puede responder una ronda sin enviar CFPs.
+ */
+public class AvailabilityReplica {
+    private final Map<AID, Entry> rooms = new HashMap<>();
+
+    public static class Entry {
+        private final String codigo;
+        private final String campus;
+        private final int capacidad;
+        private long version;
+        private long freeMask;
+
+        private Entry(AvailabilityUpdate update) {
+            this.codigo = update.getCodigo();
+            this.campus = update.getCampus();
+            this.capacidad = update.getCapacidad();
+            this.version = update.getVersion();
+            this.freeMask = update.getMask();
+        }
+
+        public String getCodigo() { return codigo; }
+        public String getCampus() { return campus; }
+        public int getCapacidad() { return capacidad; }
+        public long getVersion() { return version; }
+        public long getFreeMask() { return freeMask; }
+    }
+
+    /**
+     * Aplica una notificacion. Un delta que no sigue a la version local deja la sala fuera
+     * de la replica, para volver a preguntarle con CFP.
+     */
+    public void apply(AID room, AvailabilityUpdate update) {
+        if (update.isFull()) {
+            rooms.put(room, new Entry(update));
+            return;
+        }
+
+        Entry entry = rooms.get(room);
+        if (entry == null || update.getVersion() <= entry.version) {
+            return;
+        }
+
+        if (update.getVersion() != entry.version + 1) {
+            rooms.remove(room);
+            return;
+        }
+
+        entry.version = update.getVersion();
+        entry.freeMask &= ~update.getMask();
+    }
+
+    /**
+     * Bloques confirmados por este profesor; la notificacion de la sala llega despues.
+     */
+    public void take(AID room, long slots) {
+        Entry entry = rooms.get(room);
+        if (entry != null) {
+            entry.freeMask &= ~slots;
+        }
+    }
+
+    public Entry get(AID room) {
+        return rooms.get(room);
+    }
+
+    public boolean covers(Collection<AID> candidates) {
+        return !candidates.isEmpty() && rooms.keySet().containsAll(candidates);
+    }
+
+    public void remove(AID room) {
+        rooms.remove(room);
+    }
+
+    public void clear() {
+        rooms.clear();
+    }
+}
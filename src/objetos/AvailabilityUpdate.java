@@ -0,0 +1,46 @@
+package objetos;
+
+import java.io.Serializable;
+
+/**
+ * Notificacion de una sala a sus suscriptores. La primera (en el AGREE) trae la mascara
+ * completa de bloques libres; las siguientes solo los bloques que se ocuparon en la
+ * version indicada.
+ */
+public class AvailabilityUpdate implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String codigo;
+    private final String campus;
+    private final int capacidad;
+    private final long version;
+    private final boolean full;
+    private final long mask; // full: bloques libres; delta: bloques recien ocupados
+
+    private AvailabilityUpdate(String codigo, String campus, int capacidad, long version,
+                               boolean full, long mask) {
+        this.codigo = codigo;
+        this.campus = campus;
+        this.capacidad = capacidad;
+        this.version = version;
+        this.full = full;
+        this.mask = mask;
+    }
+
+    public static AvailabilityUpdate full(String codigo, String campus, int capacidad,
+                                          long version, long freeMask) {
+        return new AvailabilityUpdate(codigo, campus, capacidad, version, true, freeMask);
+    }
+
+    public static AvailabilityUpdate delta(String codigo, String campus, int capacidad,
+                                           long version, long takenMask) {
+        return new AvailabilityUpdate(codigo, campus, capacidad, version, false, takenMask);
+    }
+
+    public String getCodigo() { return codigo; }
+    public String getCampus() { return campus; }
+    public int getCapacidad() { return capacidad; }
+    public long getVersion() { return version; }
+    public boolean isFull() { return full; }
+    public long getMask() { return mask; }
+}
@@ -0,0 +1,57 @@
+package objetos;
+
+import objetos.helper.SlotGrid;
+
+import java.io.Serializable;
+
+/**
+ * Respuesta combinada de una sala a un CFP por lotes: los bloques libres de la sala en
+ * una version y, por cada asignatura listada en el CFP, si la sala podria alojarla.
+ * El profesor deriva de aqui la disponibilidad de cada asignatura sin volver a preguntar.
+ */
+public class BatchAvailability implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String codigo;
+    private final String campus;
+    private final int capacidad;
+    private final long version;
+    private final long freeMask;        // bloques libres (SlotGrid)
+    private final long eligibleSubjects; // bit i = la asignatura i del CFP cabe en la sala
+
+    public BatchAvailability(String codigo, String campus, int capacidad, long version,
+                             long freeMask, long eligibleSubjects) {
+        this.codigo = codigo;
+        this.campus = campus;
+        this.capacidad = capacidad;
+        this.version = version;
+        this.freeMask = freeMask;
+        this.eligibleSubjects = eligibleSubjects;
+    }
+
+    /**
+     * Disponibilidad restringida a los bloques permitidos, o null si no queda ninguno.
+     */
+    public ClassroomAvailability toAvailability(long allowedMask) {
+        long blocks = freeMask & allowedMask;
+        if (blocks == 0) {
+            return null;
+        }
+        return new ClassroomAvailability(codigo, campus, capacidad, version, SlotGrid.toBlockLists(blocks));
+    }
+
+    /**
+     * Copia sin los bloques que el mismo profesor acaba de confirmar en la sala.
+     */
+    public BatchAvailability withoutSlots(long takenMask) {
+        return new BatchAvailability(codigo, campus, capacidad, version,
+                freeMask & ~takenMask, eligibleSubjects);
+    }
+
+    public String getCodigo() { return codigo; }
+    public String getCampus() { return campus; }
+    public int getCapacidad() { return capacidad; }
+    public long getVersion() { return version; }
+    public long getFreeMask() { return freeMask; }
+    public long getEligibleSubjects() { return eligibleSubjects; }
+}
@@ -1,24 +1,42 @@
 package objetos;
 
+import constants.enums.Day;
+
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 // First, create a serializable class to hold all availability data
+// Inmutable: la sala comparte la misma instancia entre todas las respuestas de una version.
 public class ClassroomAvailability implements Serializable {
     private final String codigo;
     private final String campus;
     private final int capacidad;
-    private final Map<String, List<Integer>> availableBlocks; // day -> list of available blocks
+    private final long version;
+    private final Map<Day, List<Integer>> availableBlocks; // day -> list of available blocks
+    private final byte[] blockScores; // satisfaccion por slot (SlotGrid) calculada por la sala, o null
     //private final int satisfactionScore;
 
     public ClassroomAvailability(String codigo, String campus, int capacidad,
-                                 Map<String, List<Integer>> availableBlocks)
+                                 Map<Day, List<Integer>> availableBlocks)
     {//int satisfactionScore) {
+        this(codigo, campus, capacidad, 0L, availableBlocks);
+    }
+
+    public ClassroomAvailability(String codigo, String campus, int capacidad, long version,
+                                 Map<Day, List<Integer>> availableBlocks) {
+        this(codigo, campus, capacidad, version, availableBlocks, null);
+    }
+
+    public ClassroomAvailability(String codigo, String campus, int capacidad, long version,
+                                 Map<Day, List<Integer>> availableBlocks, byte[] blockScores) {
         this.codigo = codigo;
         this.campus = campus;
         this.capacidad = capacidad;
-        this.availableBlocks = availableBlocks;
+        this.version = version;
+        this.availableBlocks = Collections.unmodifiableMap(availableBlocks);
+        this.blockScores = blockScores;
         //this.satisfactionScore = satisfactionScore;
     }
 
@@ -26,6 +44,9 @@ public class ClassroomAvailability implements Serializable {
     public String getCodigo() { return codigo; }
     public String getCampus() { return campus; }
     public int getCapacidad() { return capacidad; }
-    public Map<String, List<Integer>> getAvailableBlocks() { return availableBlocks; }
+    public long getVersion() { return version; }
+    public Map<Day, List<Integer>> getAvailableBlocks() { return availableBlocks; }
+    // No se copia: el arreglo no se modifica despues de construir la disponibilidad
+    public byte[] getBlockScores() { return blockScores; }
     //public int getSatisfactionScore() { return satisfactionScore; }
 }
\ No newline at end of file
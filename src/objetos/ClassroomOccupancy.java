@@ -0,0 +1,103 @@
+package objetos;
+
+import constants.enums.Day;
+import objetos.helper.SlotGrid;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ocupacion compacta de una sala: un long con un bit por (dia, bloque) y arreglos
+ * primitivos paralelos con los datos de cada asignacion. Los nombres de asignaturas y
+ * profesores se internan en una tabla local para no guardar un objeto por bloque.
+ */
+public class ClassroomOccupancy {
+    private long occupied;
+    private final int[] subjectIds = new int[SlotGrid.SLOTS];
+    private final int[] professorIds = new int[SlotGrid.SLOTS];
+    private final byte[] satisfaction = new byte[SlotGrid.SLOTS];
+    private final float[] capacityFraction = new float[SlotGrid.SLOTS];
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    public boolean isFree(Day day, int block) {
+        return SlotGrid.isValidBlock(block) && (occupied & SlotGrid.bit(day, block)) == 0;
+    }
+
+    public long getOccupiedMask() {
+        return occupied;
+    }
+
+    public long getFreeMask() {
+        return ~occupied & SlotGrid.FULL_MASK;
+    }
+
+    public boolean hasFreeBlocks() {
+        return occupied != SlotGrid.FULL_MASK;
+    }
+
+    public int countAssignments() {
+        return Long.bitCount(occupied);
+    }
+
+    /**
+     * Marca el bloque como ocupado. Retorna false si el bloque no existe o ya estaba tomado.
+     */
+    public boolean assign(Day day, int block, String subjectName, String professor,
+                          int satisfaccion, float capacidad) {
+        if (!isFree(day, block)) {
+            return false;
+        }
+
+        int slot = SlotGrid.slot(day, block);
+        occupied |= 1L << slot;
+        subjectIds[slot] = intern(subjectName);
+        professorIds[slot] = intern(professor);
+        satisfaction[slot] = (byte) satisfaccion;
+        capacityFraction[slot] = capacidad;
+        return true;
+    }
+
+    public AsignacionSala getAsignacion(Day day, int block) {
+        if (!SlotGrid.isValidBlock(block) || isFree(day, block)) {
+            return null;
+        }
+
+        int slot = SlotGrid.slot(day, block);
+        return new AsignacionSala(
+                names.get(subjectIds[slot]),
+                satisfaction[slot],
+                capacityFraction[slot],
+                names.get(professorIds[slot])
+        );
+    }
+
+    /**
+     * Vista equivalente al antiguo horario dia -> lista de asignaciones con null en los bloques libres.
+     */
+    public Map<Day, List<AsignacionSala>> toHorario() {
+        Map<Day, List<AsignacionSala>> horario = new EnumMap<>(Day.class);
+        for (Day day : Day.values()) {
+            List<AsignacionSala> asignaciones = new ArrayList<>(SlotGrid.BLOCKS_PER_DAY);
+            for (int block = 1; block <= SlotGrid.BLOCKS_PER_DAY; block++) {
+                asignaciones.add(getAsignacion(day, block));
+            }
+            horario.put(day, asignaciones);
+        }
+        return horario;
+    }
+
+    private int intern(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+}
@@ -0,0 +1,67 @@
+package objetos;
+
+import constants.enums.Day;
+import objetos.helper.SlotGrid;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estado inmutable de una sala en una version dada. Se publica de nuevo solo cuando una
+ * asignacion cambia la ocupacion, por lo que las respuestas a CFP y las lecturas O2A
+ * entre dos asignaciones comparten la misma instancia.
+ */
+public final class ClassroomSnapshot {
+    private final long version;
+    private final long freeMask;
+    private final ClassroomAvailability availability;
+    private final Map<Day, List<AsignacionSala>> horario;
+
+    private ClassroomSnapshot(long version, long freeMask, ClassroomAvailability availability,
+                              Map<Day, List<AsignacionSala>> horario) {
+        this.version = version;
+        this.freeMask = freeMask;
+        this.availability = availability;
+        this.horario = horario;
+    }
+
+    public static ClassroomSnapshot of(long version, String codigo, String campus, int capacidad,
+                                       ClassroomOccupancy occupancy) {
+        ClassroomAvailability availability = null;
+        if (occupancy.hasFreeBlocks()) {
+            availability = new ClassroomAvailability(codigo, campus, capacidad, version,
+                    SlotGrid.toBlockLists(occupancy.getFreeMask()));
+        }
+
+        Map<Day, List<AsignacionSala>> horario = new EnumMap<>(Day.class);
+        occupancy.toHorario().forEach((dia, asignaciones) ->
+                horario.put(dia, Collections.unmodifiableList(asignaciones)));
+
+        return new ClassroomSnapshot(version, occupancy.getFreeMask(), availability,
+                Collections.unmodifiableMap(horario));
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Bloques libres en esta version (ver SlotGrid).
+     */
+    public long getFreeMask() {
+        return freeMask;
+    }
+
+    /**
+     * Disponibilidad para responder CFPs, o null si la sala no tiene bloques libres.
+     */
+    public ClassroomAvailability getAvailability() {
+        return availability;
+    }
+
+    public Map<Day, List<AsignacionSala>> getHorario() {
+        return horario;
+    }
+}
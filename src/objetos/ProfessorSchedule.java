@@ -0,0 +1,282 @@
+package objetos;
+
+import constants.enums.Day;
+import objetos.helper.SlotGrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Horario asignado de un profesor indexado por slot de SlotGrid: un long con los bloques
+ * ocupados y arreglos paralelos con el indice de la asignatura, la sala, el campus y la
+ * satisfaccion de cada bloque. Salas y campus usan los ids de RoomCatalog. Las consultas del evaluador (disponibilidad, BloqueInfo, bloques
+ * de una asignatura y cambios de campus) se responden sin recorrer listas ni crear objetos.
+ * Tambien guarda el orden de confirmacion para generar el JSON una sola vez al terminar.
+ */
+public class ProfessorSchedule {
+    private static final int FREE = -1;
+
+    private long occupied;
+    private final int[] subjectIndex = new int[SlotGrid.SLOTS];
+    // Codigo de la sala (indice en names) para el JSON; catalogRoomIds para el evaluador
+    private final int[] roomIds = new int[SlotGrid.SLOTS];
+    private final int[] catalogRoomIds = new int[SlotGrid.SLOTS];
+    private final int[] campusIds = new int[SlotGrid.SLOTS];
+    private final byte[] satisfaction = new byte[SlotGrid.SLOTS];
+    // Se crea al asignar para que getBloqueInfo no tenga que construir uno por consulta
+    private final BloqueInfo[] blockInfo = new BloqueInfo[SlotGrid.SLOTS];
+
+    // Slots en el orden en que se confirmaron
+    private final byte[] assignmentOrder = new byte[SlotGrid.SLOTS];
+    private int assignmentCount = 0;
+    // Bit d: el dia d tiene bloques consecutivos de campus distintos (se recalcula al asignar)
+    private int transitionDays = 0;
+
+    // Datos de cada asignatura del profesor, por su indice en la lista original
+    private final String[] subjectNames;
+    private final String[] subjectCodes;
+    private final String[] subjectCampus;
+    private final int[] subjectCampusIds;
+    private final int[] subjectInstances;
+    private final int[] assignedHours;
+
+    private final RoomCatalog catalog = RoomCatalog.get();
+    private final Map<String, Long> subjectMasks = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    public ProfessorSchedule(List<Asignatura> asignaturas) {
+        int count = asignaturas.size();
+        subjectNames = new String[count];
+        subjectCodes = new String[count];
+        subjectCampus = new String[count];
+        subjectCampusIds = new int[count];
+        subjectInstances = new int[count];
+        assignedHours = new int[count];
+        for (int i = 0; i < count; i++) {
+            Asignatura asignatura = asignaturas.get(i);
+            subjectNames[i] = asignatura.getNombre();
+            subjectCodes[i] = asignatura.getCodigoAsignatura();
+            subjectCampus[i] = asignatura.getCampus();
+            subjectCampusIds[i] = catalog.campusIdOf(asignatura.getCampus());
+        }
+        Arrays.fill(subjectIndex, FREE);
+        Arrays.fill(roomIds, FREE);
+        Arrays.fill(catalogRoomIds, RoomCatalog.UNKNOWN);
+        Arrays.fill(campusIds, RoomCatalog.UNKNOWN);
+    }
+
+    /**
+     * Registra el bloque para la asignatura en la posicion subject de la lista del profesor;
+     * instance es el numero de repeticion de esa asignatura (campo Instance del JSON).
+     * Retorna false si el bloque no existe, ya estaba ocupado o el indice no es valido.
+     */
+    public boolean assign(Day day, int block, int subject, int instance, String room, int satisfaccion) {
+        if (!SlotGrid.isValidBlock(block) || subject < 0 || subject >= subjectNames.length ||
+                !isBlockAvailable(day, block)) {
+            return false;
+        }
+
+        int slot = SlotGrid.slot(day, block);
+        long bit = 1L << slot;
+        occupied |= bit;
+        subjectIndex[slot] = subject;
+        roomIds[slot] = intern(room);
+        catalogRoomIds[slot] = catalog.idOf(room);
+        campusIds[slot] = subjectCampusIds[subject];
+        satisfaction[slot] = (byte) satisfaccion;
+        blockInfo[slot] = new BloqueInfo(subjectCampus[subject], block);
+        subjectInstances[subject] = instance;
+        assignedHours[subject]++;
+        assignmentOrder[assignmentCount++] = (byte) slot;
+        subjectMasks.merge(subjectNames[subject], bit, (a, b) -> a | b);
+        if (computeCampusTransition(day)) {
+            transitionDays |= 1 << day.ordinal();
+        } else {
+            transitionDays &= ~(1 << day.ordinal());
+        }
+        return true;
+    }
+
+    /**
+     * Bloques fuera de la grilla se consideran libres, igual que con el antiguo mapa de sets.
+     */
+    public boolean isBlockAvailable(Day day, int block) {
+        return !SlotGrid.isValidBlock(block) || (occupied & SlotGrid.bit(day, block)) == 0;
+    }
+
+    public long getOccupiedMask() {
+        return occupied;
+    }
+
+    public int getDayBits(Day day) {
+        return SlotGrid.dayBits(occupied, day);
+    }
+
+    /**
+     * Campus (de la asignatura) del bloque, o null si esta libre o fuera de rango.
+     */
+    public BloqueInfo getBloqueInfo(Day day, int block) {
+        return SlotGrid.isValidBlock(block) ? blockInfo[SlotGrid.slot(day, block)] : null;
+    }
+
+    public int getSubjectIndex(Day day, int block) {
+        return SlotGrid.isValidBlock(block) ? subjectIndex[SlotGrid.slot(day, block)] : FREE;
+    }
+
+    public String getRoom(Day day, int block) {
+        int id = SlotGrid.isValidBlock(block) ? roomIds[SlotGrid.slot(day, block)] : FREE;
+        return id == FREE ? null : names.get(id);
+    }
+
+    /**
+     * Id en RoomCatalog de la sala del bloque, o RoomCatalog.UNKNOWN si esta libre.
+     */
+    public int getRoomId(Day day, int block) {
+        return SlotGrid.isValidBlock(block) ? catalogRoomIds[SlotGrid.slot(day, block)] : RoomCatalog.UNKNOWN;
+    }
+
+    public int getAssignmentCount() {
+        return assignmentCount;
+    }
+
+    /**
+     * Slot de la i-esima asignacion confirmada.
+     */
+    public int getAssignmentSlot(int i) {
+        return assignmentOrder[i];
+    }
+
+    public int getSubjectIndexAt(int slot) {
+        return subjectIndex[slot];
+    }
+
+    public String getRoomAt(int slot) {
+        return names.get(roomIds[slot]);
+    }
+
+    public int getSatisfactionAt(int slot) {
+        return satisfaction[slot];
+    }
+
+    public int getInstance(int subject) {
+        return subjectInstances[subject];
+    }
+
+    public int getAssignedHours(int subject) {
+        return assignedHours[subject];
+    }
+
+    /**
+     * Asignaturas (por indice) con al menos tantas horas asignadas como las requeridas.
+     */
+    public int countCompletedSubjects(List<Asignatura> asignaturas) {
+        int completed = 0;
+        for (int i = 0; i < assignedHours.length && i < asignaturas.size(); i++) {
+            if (assignedHours[i] >= asignaturas.get(i).getHoras()) {
+                completed++;
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * Bloques de todas las instancias con ese nombre de asignatura, como mascara SlotGrid.
+     */
+    public long getSubjectMask(String subjectName) {
+        Long mask = subjectMasks.get(subjectName);
+        return mask != null ? mask : 0L;
+    }
+
+    public Map<Day, List<Integer>> getBlocksBySubject(String subjectName) {
+        return SlotGrid.toBlockLists(getSubjectMask(subjectName));
+    }
+
+    /**
+     * true si el bloque esta ocupado por una asignatura de un campus (id de RoomCatalog)
+     * distinto al indicado.
+     */
+    public boolean isOtherCampus(Day day, int block, int campusId) {
+        if (!SlotGrid.isValidBlock(block) || (occupied & SlotGrid.bit(day, block)) == 0) {
+            return false;
+        }
+        return campusIds[SlotGrid.slot(day, block)] != campusId;
+    }
+
+    /**
+     * true si el dia ya tiene bloques consecutivos (en orden) de campus distintos.
+     */
+    public boolean hasCampusTransition(Day day) {
+        return (transitionDays & (1 << day.ordinal())) != 0;
+    }
+
+    /**
+     * Bit d encendido si el dia d tiene un cambio de campus (ver hasCampusTransition).
+     */
+    public int getCampusTransitionDays() {
+        return transitionDays;
+    }
+
+    /**
+     * Bloques ocupados por campus: la posicion i tiene los del campus con id i de RoomCatalog.
+     * Los bloques de un campus fuera del catalogo no aparecen en ninguna.
+     */
+    public long[] getCampusMasks(int campusCount) {
+        long[] masks = new long[campusCount];
+        for (long bits = occupied; bits != 0; bits &= bits - 1) {
+            int slot = Long.numberOfTrailingZeros(bits);
+            int campusId = campusIds[slot];
+            if (campusId >= 0 && campusId < campusCount) {
+                masks[campusId] |= 1L << slot;
+            }
+        }
+        return masks;
+    }
+
+    private boolean computeCampusTransition(Day day) {
+        int bits = getDayBits(day);
+        int base = day.ordinal() * SlotGrid.BLOCKS_PER_DAY;
+        boolean first = true;
+        int previous = RoomCatalog.UNKNOWN;
+        while (bits != 0) {
+            int campus = campusIds[base + Integer.numberOfTrailingZeros(bits)];
+            if (!first && previous != campus) {
+                return true;
+            }
+            first = false;
+            previous = campus;
+            bits &= bits - 1;
+        }
+        return false;
+    }
+
+    /**
+     * Vista instancia -> bloques del dia, con las mismas claves que el antiguo bloquesAsignadosPorDia.
+     */
+    public Map<String, List<Integer>> getBlocksByDay(Day day) {
+        Map<String, List<Integer>> blocksByKey = new HashMap<>();
+        int bits = getDayBits(day);
+        int base = day.ordinal() * SlotGrid.BLOCKS_PER_DAY;
+        while (bits != 0) {
+            int offset = Integer.numberOfTrailingZeros(bits);
+            int subject = subjectIndex[base + offset];
+            String key = subjectNames[subject] + "-" + subjectCodes[subject] + "-" + subjectInstances[subject];
+            blocksByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(offset + 1);
+            bits &= bits - 1;
+        }
+        return blocksByKey;
+    }
+
+    private int intern(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+}
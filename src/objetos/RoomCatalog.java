@@ -0,0 +1,120 @@
+package objetos;
+
+import constants.Commons;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Catalogo inmutable de las salas del escenario, construido una vez desde salas.json y
+ * compartido por todos los agentes de la JVM. Cada sala recibe un id denso (su posicion en
+ * el JSON) y cada campus un id propio, asi el evaluador y la seleccion de salas comparan
+ * enteros en vez de codigos o prefijos de texto.
+ */
+public final class RoomCatalog {
+    public static final int UNKNOWN = -1;
+
+    private static volatile RoomCatalog shared = new RoomCatalog(new JSONArray());
+
+    private final String[] codes;
+    private final int[] campusIds;
+    private final int[] capacities;
+    private final boolean[] meetingRooms;
+    private final Map<String, Integer> idsByCode = new HashMap<>();
+
+    private final List<String> campusNames = new ArrayList<>();
+    private final Map<String, Integer> campusIdsByName = new HashMap<>();
+
+    private RoomCatalog(JSONArray salasJson) {
+        int count = salasJson.size();
+        codes = new String[count];
+        campusIds = new int[count];
+        capacities = new int[count];
+        meetingRooms = new boolean[count];
+
+        for (int id = 0; id < count; id++) {
+            JSONObject salaJson = (JSONObject) salasJson.get(id);
+            codes[id] = (String) salaJson.get("Codigo");
+            campusIds[id] = internCampus((String) salaJson.get("Campus"));
+            capacities[id] = ((Number) salaJson.get("Capacidad")).intValue();
+            meetingRooms[id] = capacities[id] < Commons.MEETING_ROOM_THRESHOLD;
+            idsByCode.put(codes[id], id);
+        }
+    }
+
+    /**
+     * Publica el catalogo del escenario. Se llama al cargar salas.json, antes de crear los agentes.
+     */
+    public static RoomCatalog install(JSONArray salasJson) {
+        RoomCatalog catalog = new RoomCatalog(salasJson);
+        shared = catalog;
+        return catalog;
+    }
+
+    public static RoomCatalog get() {
+        return shared;
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    /**
+     * Id de la sala con ese codigo, o UNKNOWN si no esta en el catalogo.
+     */
+    public int idOf(String codigo) {
+        Integer id = codigo != null ? idsByCode.get(codigo) : null;
+        return id != null ? id : UNKNOWN;
+    }
+
+    /**
+     * Id del campus con ese nombre, o UNKNOWN si ninguna sala esta en el.
+     */
+    public int campusIdOf(String campus) {
+        Integer id = campus != null ? campusIdsByName.get(campus) : null;
+        return id != null ? id : UNKNOWN;
+    }
+
+    public String getCode(int id) {
+        return codes[id];
+    }
+
+    public int getCampusId(int id) {
+        return campusIds[id];
+    }
+
+    public int getCapacity(int id) {
+        return capacities[id];
+    }
+
+    public boolean isMeetingRoom(int id) {
+        return meetingRooms[id];
+    }
+
+    public int getCampusCount() {
+        return campusNames.size();
+    }
+
+    public String getCampusName(int campusId) {
+        return campusNames.get(campusId);
+    }
+
+    public List<String> getCampusNames() {
+        return Collections.unmodifiableList(campusNames);
+    }
+
+    private int internCampus(String campus) {
+        Integer id = campusIdsByName.get(campus);
+        if (id == null) {
+            id = campusNames.size();
+            campusNames.add(campus);
+            campusIdsByName.put(campus, id);
+        }
+        return id;
+    }
+}
@@ -3,56 +3,68 @@ package objetos.helper;
 import constants.enums.Day;
 import jade.lang.acl.ACLMessage;
 import objetos.ClassroomAvailability;
+import objetos.RoomCatalog;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class BatchProposal {
-    private final Map<Day, List<BlockProposal>> dayProposals;
     private final String roomCode;
     private final String campus;
+    // Ids de RoomCatalog (RoomCatalog.UNKNOWN si la sala o el campus no estan en el catalogo)
+    private final int roomId;
+    private final int campusId;
     private final int capacity;
     private int satisfactionScore;
     private final ACLMessage originalMessage;
+    private final boolean roomScored; // la sala ya envio la satisfaccion de cada bloque
+    // Satisfaccion por slot de cada bloque propuesto (0 si aun no se evalua)
+    private final byte[] blockScores;
+
+    // Bloques propuestos como mascara SlotGrid y dias presentes como bits por ordinal
+    private final long slotMask;
+    private final int dayKeys;
 
     public BatchProposal(ClassroomAvailability availability, ACLMessage message) {
         this.roomCode = availability.getCodigo();
         this.campus = availability.getCampus();
         this.capacity = availability.getCapacidad();
+        RoomCatalog catalog = RoomCatalog.get();
+        this.roomId = catalog.idOf(roomCode);
+        this.campusId = roomId != RoomCatalog.UNKNOWN ? catalog.getCampusId(roomId) : catalog.campusIdOf(campus);
         this.satisfactionScore = 0;
         this.originalMessage = message;
-        this.dayProposals = new HashMap<>();
-
-        // Convert string-based map to proper Day enum map
-        availability.getAvailableBlocks().forEach((dayStr, blocks) -> {
-            Day day = Day.fromString(dayStr);
-            dayProposals.put(day, blocks.stream()
-                    .map(block -> new BlockProposal(block, day))
-                    .collect(Collectors.toList()));
-        });
-    }
+        byte[] roomScores = availability.getBlockScores();
+        this.roomScored = roomScores != null;
+        this.blockScores = roomScored ? roomScores : new byte[SlotGrid.SLOTS];
 
-    public static class BlockProposal {
-        private final int block;
-        private final Day day;
-
-        public BlockProposal(int block, Day day) {
-            this.block = block;
-            this.day = day;
+        long mask = 0L;
+        int days = 0;
+        for (Map.Entry<Day, List<Integer>> entry : availability.getAvailableBlocks().entrySet()) {
+            days |= 1 << entry.getKey().ordinal();
+            for (int block : entry.getValue()) {
+                if (SlotGrid.isValidBlock(block)) {
+                    mask |= SlotGrid.bit(entry.getKey(), block);
+                }
+            }
         }
-
-        public int getBlock() { return block; }
-        public Day getDay() { return day; }
+        this.slotMask = mask;
+        this.dayKeys = days;
     }
 
     // Getters
-    public Map<Day, List<BlockProposal>> getDayProposals() { return dayProposals; }
     public String getRoomCode() { return roomCode; }
     public String getCampus() { return campus; }
+    public int getRoomId() { return roomId; }
+    public int getCampusId() { return campusId; }
     public int getCapacity() { return capacity; }
     public int getSatisfactionScore() { return satisfactionScore; }
+    public long getSlotMask() { return slotMask; }
+    public boolean hasDay(Day day) { return (dayKeys & (1 << day.ordinal())) != 0; }
+    public boolean hasRoomScores() { return roomScored; }
+    public int getBlockScore(int slot) { return blockScores[slot]; }
+    // Solo para propuestas sin puntajes de la sala (hasRoomScores false): ese arreglo no se copia
+    public void setBlockScore(int slot, int score) { blockScores[slot] = (byte) score; }
     public ACLMessage getOriginalMessage() { return originalMessage; }
     public void setSatisfactionScore(int satisfactionScore) { this.satisfactionScore = satisfactionScore; }
 }
\ No newline at end of file
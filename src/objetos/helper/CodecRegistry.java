@@ -0,0 +1,371 @@
+package objetos.helper;
+
+import constants.enums.Actividad;
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+import jade.lang.acl.ACLMessage;
+import jade.lang.acl.UnreadableException;
+import objetos.AvailabilityUpdate;
+import objetos.BatchAvailability;
+import objetos.ClassroomAvailability;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro de codecs binarios para el contenido de los mensajes de negociacion.
+ * El emisor marca el mensaje con la ontologia del codec y el receptor la usa para
+ * elegir el decodificador. Mensajes sin ontologia registrada se leen como objetos
+ * serializados, igual que antes.
+ */
+public final class CodecRegistry {
+    public static final String CLASSROOM_AVAILABILITY = "classroom-availability";
+    public static final String CLASSROOM_AVAILABILITY_BATCH = "classroom-availability-batch";
+    public static final String AVAILABILITY_UPDATE = "classroom-availability-update";
+    public static final String ASSIGNMENT_REQUEST = "batch-assignment-request";
+    public static final String GRANT_REQUEST = "assignment-grant-request";
+    public static final String ASSIGNMENT_CONFIRMATION = "batch-assignment-confirmation";
+
+    private static final Map<String, PayloadCodec<?>> codecs = new ConcurrentHashMap<>();
+
+    static {
+        register(new AvailabilityCodec());
+        register(new BatchAvailabilityCodec());
+        register(new AvailabilityUpdateCodec());
+        register(new AssignmentRequestCodec());
+        register(new AssignmentConfirmationCodec());
+        register(new GrantRequestCodec());
+    }
+
+    private CodecRegistry() {
+    }
+
+    public static void register(PayloadCodec<?> codec) {
+        codecs.put(codec.getOntology(), codec);
+    }
+
+    public static <T> byte[] encode(String ontology, T value) throws IOException {
+        PayloadCodec<T> codec = lookup(ontology);
+        if (codec == null) {
+            throw new IOException("No codec registered for ontology " + ontology);
+        }
+
+        CompactWriter out = new CompactWriter();
+        codec.encode(value, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Codifica el valor en el mensaje y lo etiqueta con la ontologia correspondiente.
+     */
+    public static <T> void setContent(ACLMessage msg, String ontology, T value) throws IOException {
+        msg.setOntology(ontology);
+        msg.setByteSequenceContent(encode(ontology, value));
+    }
+
+    /**
+     * Adjunta bytes ya codificados (por ejemplo, cacheados por version).
+     */
+    public static void setEncodedContent(ACLMessage msg, String ontology, byte[] payload) {
+        msg.setOntology(ontology);
+        msg.setByteSequenceContent(payload);
+    }
+
+    public static Object decode(ACLMessage msg) throws IOException {
+        PayloadCodec<?> codec = lookup(msg.getOntology());
+        if (codec == null) {
+            try {
+                return msg.getContentObject();
+            } catch (UnreadableException e) {
+                throw new IOException("Unreadable serialized content: " + e.getMessage(), e);
+            }
+        }
+
+        byte[] payload = msg.getByteSequenceContent();
+        if (payload == null) {
+            return null;
+        }
+
+        return codec.decode(new CompactReader(payload));
+    }
+
+    public static <T> T decode(ACLMessage msg, Class<T> type) throws IOException {
+        Object value = decode(msg);
+        if (value != null && !type.isInstance(value)) {
+            throw new IOException("Expected " + type.getSimpleName() +
+                    " but got " + value.getClass().getSimpleName());
+        }
+        return type.cast(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> PayloadCodec<T> lookup(String ontology) {
+        if (ontology == null) {
+            return null;
+        }
+        return (PayloadCodec<T>) codecs.get(ontology);
+    }
+
+    private static class AvailabilityCodec implements PayloadCodec<ClassroomAvailability> {
+        @Override
+        public String getOntology() {
+            return CLASSROOM_AVAILABILITY;
+        }
+
+        @Override
+        public void encode(ClassroomAvailability value, CompactWriter out) {
+            out.writeString(value.getCodigo());
+            out.writeString(value.getCampus());
+            out.writeVarInt(value.getCapacidad());
+            out.writeVarLong(value.getVersion());
+
+            byte[] scores = value.getBlockScores();
+            out.writeBoolean(scores != null);
+
+            Map<Day, List<Integer>> blocks = value.getAvailableBlocks();
+            out.writeVarInt(blocks.size());
+            for (Map.Entry<Day, List<Integer>> entry : blocks.entrySet()) {
+                out.writeDay(entry.getKey());
+                out.writeVarInt(entry.getValue().size());
+                for (int block : entry.getValue()) {
+                    out.writeVarInt(block);
+                    if (scores != null) {
+                        out.writeByte(scores[SlotGrid.slot(entry.getKey(), block)]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public ClassroomAvailability decode(CompactReader in) throws IOException {
+            String codigo = in.readString();
+            String campus = in.readString();
+            int capacidad = in.readVarInt();
+            long version = in.readVarLong();
+            byte[] scores = in.readBoolean() ? new byte[SlotGrid.SLOTS] : null;
+
+            int days = in.readCount();
+            Map<Day, List<Integer>> blocks = new EnumMap<>(Day.class);
+            for (int d = 0; d < days; d++) {
+                Day day = in.readDay();
+                int count = in.readCount();
+                List<Integer> dayBlocks = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    int block = in.readVarInt();
+                    if (!SlotGrid.isValidBlock(block)) {
+                        throw new IOException("Invalid block " + block);
+                    }
+                    dayBlocks.add(block);
+                    if (scores != null) {
+                        scores[SlotGrid.slot(day, block)] = (byte) in.readByte();
+                    }
+                }
+                blocks.put(day, dayBlocks);
+            }
+
+            return new ClassroomAvailability(codigo, campus, capacidad, version, blocks, scores);
+        }
+    }
+
+    private static class BatchAvailabilityCodec implements PayloadCodec<BatchAvailability> {
+        @Override
+        public String getOntology() {
+            return CLASSROOM_AVAILABILITY_BATCH;
+        }
+
+        @Override
+        public void encode(BatchAvailability value, CompactWriter out) {
+            out.writeString(value.getCodigo());
+            out.writeString(value.getCampus());
+            out.writeVarInt(value.getCapacidad());
+            out.writeVarLong(value.getVersion());
+            out.writeVarLong(value.getFreeMask());
+            out.writeVarLong(value.getEligibleSubjects());
+        }
+
+        @Override
+        public BatchAvailability decode(CompactReader in) throws IOException {
+            String codigo = in.readString();
+            String campus = in.readString();
+            int capacidad = in.readVarInt();
+            long version = in.readVarLong();
+            long freeMask = in.readVarLong();
+            if ((freeMask & ~SlotGrid.FULL_MASK) != 0) {
+                throw new IOException("Invalid free block mask");
+            }
+            long eligible = in.readVarLong();
+            return new BatchAvailability(codigo, campus, capacidad, version, freeMask, eligible);
+        }
+    }
+
+    private static class AvailabilityUpdateCodec implements PayloadCodec<AvailabilityUpdate> {
+        @Override
+        public String getOntology() {
+            return AVAILABILITY_UPDATE;
+        }
+
+        @Override
+        public void encode(AvailabilityUpdate value, CompactWriter out) {
+            out.writeString(value.getCodigo());
+            out.writeString(value.getCampus());
+            out.writeVarInt(value.getCapacidad());
+            out.writeVarLong(value.getVersion());
+            out.writeBoolean(value.isFull());
+            out.writeVarLong(value.getMask());
+        }
+
+        @Override
+        public AvailabilityUpdate decode(CompactReader in) throws IOException {
+            String codigo = in.readString();
+            String campus = in.readString();
+            int capacidad = in.readVarInt();
+            long version = in.readVarLong();
+            boolean full = in.readBoolean();
+            long mask = in.readVarLong();
+            if ((mask & ~SlotGrid.FULL_MASK) != 0) {
+                throw new IOException("Invalid block mask");
+            }
+            return full
+                    ? AvailabilityUpdate.full(codigo, campus, capacidad, version, mask)
+                    : AvailabilityUpdate.delta(codigo, campus, capacidad, version, mask);
+        }
+    }
+
+    private static class AssignmentRequestCodec implements PayloadCodec<BatchAssignmentRequest> {
+        @Override
+        public String getOntology() {
+            return ASSIGNMENT_REQUEST;
+        }
+
+        @Override
+        public void encode(BatchAssignmentRequest value, CompactWriter out) {
+            List<BatchAssignmentRequest.AssignmentRequest> assignments = value.getAssignments();
+            out.writeVarInt(assignments.size());
+            for (BatchAssignmentRequest.AssignmentRequest request : assignments) {
+                out.writeDay(request.getDay());
+                out.writeVarInt(request.getBlock());
+                out.writeString(request.getSubjectName());
+                out.writeVarInt(request.getSatisfaction());
+                out.writeString(request.getClassroomCode());
+                out.writeVarInt(request.getVacancy());
+                out.writeString(request.getProfName());
+            }
+        }
+
+        @Override
+        public BatchAssignmentRequest decode(CompactReader in) throws IOException {
+            int count = in.readCount();
+            List<BatchAssignmentRequest.AssignmentRequest> assignments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Day day = in.readDay();
+                int block = in.readVarInt();
+                String subjectName = in.readString();
+                int satisfaction = in.readVarInt();
+                String classroomCode = in.readString();
+                int vacancy = in.readVarInt();
+                String profName = in.readString();
+                assignments.add(new BatchAssignmentRequest.AssignmentRequest(
+                        day, block, subjectName, satisfaction, classroomCode, vacancy, profName));
+            }
+            return new BatchAssignmentRequest(assignments);
+        }
+    }
+
+    private static class GrantRequestCodec implements PayloadCodec<GrantRequest> {
+        private static final Actividad[] ACTIVIDADES = Actividad.values();
+        private static final TipoContrato[] CONTRATOS = TipoContrato.values();
+
+        @Override
+        public String getOntology() {
+            return GRANT_REQUEST;
+        }
+
+        @Override
+        public void encode(GrantRequest value, CompactWriter out) {
+            out.writeString(value.getSubjectName());
+            out.writeString(value.getProfName());
+            out.writeVarInt(value.getVacancy());
+            out.writeVarInt(value.getNivel());
+            out.writeString(value.getCampus());
+            out.writeVarInt(value.getPendingBlocks());
+            out.writeVarInt(value.getActividad().ordinal());
+            out.writeVarInt(value.getTipoContrato().ordinal());
+            out.writeVarLong(value.getProfessorOccupied());
+            out.writeVarLong(value.getSubjectBlocks());
+            out.writeVarInt(value.getMaxBlocksPerDay());
+            out.writeVarLong(value.getProfessorAssigned());
+            long[] campusMasks = value.getCampusMasks();
+            out.writeVarInt(campusMasks.length);
+            for (long mask : campusMasks) {
+                out.writeVarLong(mask);
+            }
+            out.writeVarInt(value.getCampusTransitionDays());
+        }
+
+        @Override
+        public GrantRequest decode(CompactReader in) throws IOException {
+            String subjectName = in.readString();
+            String profName = in.readString();
+            int vacancy = in.readVarInt();
+            int nivel = in.readVarInt();
+            String campus = in.readString();
+            int pendingBlocks = in.readVarInt();
+            int actividad = in.readVarInt();
+            int contrato = in.readVarInt();
+            if (actividad < 0 || actividad >= ACTIVIDADES.length || contrato < 0 || contrato >= CONTRATOS.length) {
+                throw new IOException("Invalid activity or contract ordinal");
+            }
+            long professorOccupied = in.readVarLong();
+            long subjectBlocks = in.readVarLong();
+            int maxBlocksPerDay = in.readVarInt();
+            long professorAssigned = in.readVarLong();
+            int campusCount = in.readCount();
+            long[] campusMasks = new long[campusCount];
+            for (int i = 0; i < campusCount; i++) {
+                campusMasks[i] = in.readVarLong();
+            }
+            int campusTransitionDays = in.readVarInt();
+            return new GrantRequest(subjectName, profName, vacancy, nivel, campus, pendingBlocks,
+                    ACTIVIDADES[actividad], CONTRATOS[contrato], professorOccupied, subjectBlocks,
+                    maxBlocksPerDay, professorAssigned, campusMasks, campusTransitionDays);
+        }
+    }
+
+    private static class AssignmentConfirmationCodec implements PayloadCodec<BatchAssignmentConfirmation> {
+        @Override
+        public String getOntology() {
+            return ASSIGNMENT_CONFIRMATION;
+        }
+
+        @Override
+        public void encode(BatchAssignmentConfirmation value, CompactWriter out) {
+            List<BatchAssignmentConfirmation.ConfirmedAssignment> confirmed = value.getConfirmedAssignments();
+            out.writeVarInt(confirmed.size());
+            for (BatchAssignmentConfirmation.ConfirmedAssignment assignment : confirmed) {
+                out.writeDay(assignment.getDay());
+                out.writeVarInt(assignment.getBlock());
+                out.writeString(assignment.getClassroomCode());
+                out.writeVarInt(assignment.getSatisfaction());
+            }
+        }
+
+        @Override
+        public BatchAssignmentConfirmation decode(CompactReader in) throws IOException {
+            int count = in.readCount();
+            List<BatchAssignmentConfirmation.ConfirmedAssignment> confirmed = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Day day = in.readDay();
+                int block = in.readVarInt();
+                String classroomCode = in.readString();
+                int satisfaction = in.readVarInt();
+                confirmed.add(new BatchAssignmentConfirmation.ConfirmedAssignment(
+                        day, block, classroomCode, satisfaction));
+            }
+            return new BatchAssignmentConfirmation(confirmed);
+        }
+    }
+}
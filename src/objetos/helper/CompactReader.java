@@ -0,0 +1,99 @@
+package objetos.helper;
+
+import constants.enums.Day;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contraparte de CompactWriter.
+ */
+public class CompactReader {
+    private final byte[] data;
+    private int pos;
+    private final List<String> strings = new ArrayList<>();
+
+    public CompactReader(byte[] data) {
+        this.data = data;
+        this.pos = 0;
+    }
+
+    public int readByte() throws IOException {
+        if (pos >= data.length) {
+            throw new EOFException("Unexpected end of payload at " + pos);
+        }
+        return data[pos++] & 0xFF;
+    }
+
+    public boolean readBoolean() throws IOException {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() throws IOException {
+        return (int) readVarLong();
+    }
+
+    public long readVarLong() throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift >= 64) {
+                throw new IOException("Malformed varint at " + pos);
+            }
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Cantidad de elementos de una lista. Cada elemento ocupa al menos un byte, asi que una
+     * cantidad negativa o mayor que lo que queda del contenido indica un payload corrupto.
+     */
+    public int readCount() throws IOException {
+        long count = readVarLong();
+        if (count < 0 || count > data.length - pos) {
+            throw new IOException("Invalid element count " + count + " at " + pos);
+        }
+        return (int) count;
+    }
+
+    public Day readDay() throws IOException {
+        int ordinal = readByte();
+        if (ordinal >= SlotGrid.DAYS) {
+            throw new IOException("Invalid day ordinal " + ordinal);
+        }
+        return SlotGrid.dayFromOrdinal(ordinal);
+    }
+
+    public String readString() throws IOException {
+        int ref = readVarInt();
+        if (ref < 0) {
+            throw new IOException("Invalid string reference " + ref);
+        }
+        if (ref > 0) {
+            if (ref > strings.size()) {
+                throw new IOException("Unknown string reference " + ref);
+            }
+            return strings.get(ref - 1);
+        }
+
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        length--;
+        if (length < 0 || length > data.length - pos) {
+            throw new EOFException("String length " + length + " exceeds payload");
+        }
+        String value = new String(data, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        strings.add(value);
+        return value;
+    }
+}
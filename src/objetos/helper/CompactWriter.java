@@ -0,0 +1,77 @@
+package objetos.helper;
+
+import constants.enums.Day;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Escritor de bytes compacto: enteros como varint, dias como ordinal y strings internados
+ * dentro del mensaje (la segunda aparicion de un codigo de sala o asignatura cuesta un varint).
+ */
+public class CompactWriter {
+    private final ByteArrayOutputStream out;
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public CompactWriter() {
+        this(64);
+    }
+
+    public CompactWriter(int initialSize) {
+        this.out = new ByteArrayOutputStream(initialSize);
+    }
+
+    public void writeByte(int value) {
+        out.write(value);
+    }
+
+    public void writeBoolean(boolean value) {
+        out.write(value ? 1 : 0);
+    }
+
+    public void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    public void writeVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    public void writeDay(Day day) {
+        out.write(day.ordinal());
+    }
+
+    /**
+     * 0 + largo + UTF-8 para la primera aparicion, o (id + 1) para las siguientes.
+     * null se escribe como un string vacio marcado aparte.
+     */
+    public void writeString(String value) {
+        if (value == null) {
+            writeVarInt(0);
+            writeVarInt(0);
+            return;
+        }
+
+        Integer id = strings.get(value);
+        if (id != null) {
+            writeVarInt(id + 1);
+            return;
+        }
+
+        strings.put(value, strings.size());
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(0);
+        writeVarInt(bytes.length + 1);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    public byte[] toByteArray() {
+        return out.toByteArray();
+    }
+}
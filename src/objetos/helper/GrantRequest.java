@@ -0,0 +1,73 @@
+package objetos.helper;
+
+import constants.enums.Actividad;
+import constants.enums.TipoContrato;
+
+import java.io.Serializable;
+
+/**
+ * Solicitud del protocolo request/grant: todo lo que la sala necesita para elegir y
+ * reservar de una vez los mejores bloques para la asignatura, sin ronda de propuestas.
+ */
+public class GrantRequest implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final String subjectName;
+    private final String profName;
+    private final int vacancy;
+    private final int nivel;
+    private final String campus;
+    private final int pendingBlocks;
+    private final Actividad actividad;
+    private final TipoContrato tipoContrato;
+    private final long professorOccupied; // bloques que la sala no puede otorgar (SlotGrid)
+    private final long subjectBlocks;     // bloques ya asignados a esta asignatura (SlotGrid)
+    private final int maxBlocksPerDay;
+    // Horario del profesor para las reglas de huecos y campus de HardConstraints
+    private final long professorAssigned;  // bloques asignados al profesor (SlotGrid)
+    private final long[] campusMasks;      // bloques asignados por id de campus de RoomCatalog
+    private final int campusTransitionDays; // bit d: el dia d ya tiene un cambio de campus
+
+    public GrantRequest(String subjectName, String profName, int vacancy, int nivel, String campus,
+                        int pendingBlocks, Actividad actividad, TipoContrato tipoContrato,
+                        long professorOccupied, long subjectBlocks, int maxBlocksPerDay,
+                        long professorAssigned, long[] campusMasks, int campusTransitionDays) {
+        this.subjectName = subjectName;
+        this.profName = profName;
+        this.vacancy = vacancy;
+        this.nivel = nivel;
+        this.campus = campus;
+        this.pendingBlocks = pendingBlocks;
+        this.actividad = actividad;
+        this.tipoContrato = tipoContrato;
+        this.professorOccupied = professorOccupied;
+        this.subjectBlocks = subjectBlocks;
+        this.maxBlocksPerDay = maxBlocksPerDay;
+        this.professorAssigned = professorAssigned;
+        this.campusMasks = campusMasks;
+        this.campusTransitionDays = campusTransitionDays;
+    }
+
+    public String getSubjectName() { return subjectName; }
+    public String getProfName() { return profName; }
+    public int getVacancy() { return vacancy; }
+    public int getNivel() { return nivel; }
+    public String getCampus() { return campus; }
+    public int getPendingBlocks() { return pendingBlocks; }
+    public Actividad getActividad() { return actividad; }
+    public TipoContrato getTipoContrato() { return tipoContrato; }
+    public long getProfessorOccupied() { return professorOccupied; }
+    public long getSubjectBlocks() { return subjectBlocks; }
+    public int getMaxBlocksPerDay() { return maxBlocksPerDay; }
+    public long getProfessorAssigned() { return professorAssigned; }
+    public int getCampusTransitionDays() { return campusTransitionDays; }
+    // No se copia: el arreglo no se modifica despues de construir la solicitud
+    public long[] getCampusMasks() { return campusMasks; }
+
+    /**
+     * Bloques asignados al profesor en el campus con ese id, o 0 si no tiene.
+     */
+    public long getCampusMask(int campusId) {
+        return campusId >= 0 && campusId < campusMasks.length ? campusMasks[campusId] : 0L;
+    }
+}
@@ -0,0 +1,15 @@
+package objetos.helper;
+
+import java.io.IOException;
+
+/**
+ * Codificador binario de un tipo de contenido de negociacion.
+ * Cada codec se identifica por la ontologia que viaja en el ACLMessage.
+ */
+public interface PayloadCodec<T> {
+    String getOntology();
+
+    void encode(T value, CompactWriter out) throws IOException;
+
+    T decode(CompactReader in) throws IOException;
+}
@@ -0,0 +1,106 @@
+package objetos.helper;
+
+import constants.Commons;
+import constants.enums.Day;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Utilidades para direccionar la grilla semanal (dias x bloques) como bits de un long.
+ * El slot de (dia, bloque) es dia.ordinal() * MAX_BLOQUE_DIURNO + (bloque - 1).
+ */
+public final class SlotGrid {
+    public static final int BLOCKS_PER_DAY = Commons.MAX_BLOQUE_DIURNO;
+    public static final int DAYS = Day.values().length;
+    public static final int SLOTS = DAYS * BLOCKS_PER_DAY;
+
+    public static final long DAY_MASK = (1L << BLOCKS_PER_DAY) - 1;
+    public static final long FULL_MASK = (1L << SLOTS) - 1;
+
+    private static final Day[] DAY_VALUES = Day.values();
+
+    private SlotGrid() {
+    }
+
+    public static boolean isValidBlock(int block) {
+        return block >= 1 && block <= BLOCKS_PER_DAY;
+    }
+
+    public static int slot(Day day, int block) {
+        return day.ordinal() * BLOCKS_PER_DAY + (block - 1);
+    }
+
+    public static long bit(Day day, int block) {
+        return 1L << slot(day, block);
+    }
+
+    public static Day dayOf(int slot) {
+        return DAY_VALUES[slot / BLOCKS_PER_DAY];
+    }
+
+    public static int blockOf(int slot) {
+        return slot % BLOCKS_PER_DAY + 1;
+    }
+
+    public static Day dayFromOrdinal(int ordinal) {
+        return DAY_VALUES[ordinal];
+    }
+
+    /**
+     * Bloques de un dia como mascara de BLOCKS_PER_DAY bits (bit 0 = bloque 1).
+     */
+    public static int dayBits(long mask, Day day) {
+        return (int) ((mask >>> (day.ordinal() * BLOCKS_PER_DAY)) & DAY_MASK);
+    }
+
+    /**
+     * Bloques (1-based) marcados en la mascara, agrupados por dia. Omite los dias vacios.
+     */
+    public static Map<Day, List<Integer>> toBlockLists(long mask) {
+        Map<Day, List<Integer>> blocksByDay = new EnumMap<>(Day.class);
+        for (Day day : DAY_VALUES) {
+            int bits = dayBits(mask, day);
+            if (bits == 0) {
+                continue;
+            }
+
+            List<Integer> blocks = new ArrayList<>(Integer.bitCount(bits));
+            while (bits != 0) {
+                blocks.add(Integer.numberOfTrailingZeros(bits) + 1);
+                bits &= bits - 1;
+            }
+            blocksByDay.put(day, Collections.unmodifiableList(blocks));
+        }
+        return blocksByDay;
+    }
+
+    /**
+     * Inverso de toBlockLists: ignora bloques fuera de rango.
+     */
+    public static long toMask(Map<Day, List<Integer>> blocksByDay) {
+        long mask = 0L;
+        for (Map.Entry<Day, List<Integer>> entry : blocksByDay.entrySet()) {
+            for (int block : entry.getValue()) {
+                if (isValidBlock(block)) {
+                    mask |= bit(entry.getKey(), block);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Repite una mascara diaria en los cinco dias de la semana.
+     */
+    public static long everyDay(int dayBits) {
+        long mask = 0L;
+        for (int d = 0; d < DAYS; d++) {
+            mask |= ((long) dayBits & DAY_MASK) << (d * BLOCKS_PER_DAY);
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,189 @@
+package objetos.helper;
+
+import constants.enums.Actividad;
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contenido de un CFP de profesor a sala. Se sigue enviando como texto separado por comas
+ * para que el registro de mensajes sea legible; esta clase centraliza el formato para que
+ * el profesor lo escriba y la sala lo lea de la misma forma.
+ * Los tres campos opcionales del final (actividad, contrato y bloques ya asignados a la
+ * asignatura) le piden a la sala que puntue cada bloque.
+ * Un CFP por lotes lleva una solicitud por linea, en el orden de las asignaturas del profesor.
+ * En los campos de texto (asignatura, campus, sala) los separadores se escriben escapados
+ * (%2C, %0A y %25 para el propio %), asi un nombre con coma no desarma el CFP.
+ */
+public class SolicitudInfo {
+    private static final int FIELD_COUNT = 8;
+    private static final int SCORING_FIELD_COUNT = 11;
+    private static final String BATCH_SEPARATOR = "\n";
+
+    private final String asignatura;
+    private final int vacantes;
+    private final int nivel;
+    private final String campus;
+    private final int bloquesPendientes;
+    private final String salaAsignada;
+    private final Day ultimoDia;
+    private final int ultimoBloque;
+    private Actividad actividad;
+    private TipoContrato tipoContrato;
+    private long bloquesAsignatura; // mascara SlotGrid de los bloques ya asignados a la asignatura
+
+    public SolicitudInfo(String asignatura, int vacantes, int nivel, String campus,
+                         int bloquesPendientes, String salaAsignada, Day ultimoDia, int ultimoBloque) {
+        this.asignatura = asignatura;
+        this.vacantes = vacantes;
+        this.nivel = nivel;
+        this.campus = campus;
+        this.bloquesPendientes = bloquesPendientes;
+        this.salaAsignada = salaAsignada;
+        this.ultimoDia = ultimoDia;
+        this.ultimoBloque = ultimoBloque;
+    }
+
+    /**
+     * Agrega los datos que la sala necesita para calcular la satisfaccion de cada bloque.
+     */
+    public SolicitudInfo withScoring(Actividad actividad, TipoContrato tipoContrato, long bloquesAsignatura) {
+        this.actividad = actividad;
+        this.tipoContrato = tipoContrato;
+        this.bloquesAsignatura = bloquesAsignatura;
+        return this;
+    }
+
+    public boolean requestsScoring() {
+        return actividad != null && tipoContrato != null;
+    }
+
+    public String format() {
+        if (requestsScoring()) {
+            return String.format("%s,%d,%d,%s,%d,%s,%s,%d,%s,%s,%d",
+                    escape(asignatura),
+                    vacantes,
+                    nivel,
+                    escape(campus),
+                    bloquesPendientes,
+                    escape(salaAsignada),
+                    ultimoDia != null ? ultimoDia.toString() : "",
+                    ultimoBloque,
+                    actividad,
+                    tipoContrato,
+                    bloquesAsignatura);
+        }
+
+        return String.format("%s,%d,%d,%s,%d,%s,%s,%d",
+                escape(asignatura),
+                vacantes,
+                nivel,
+                escape(campus),
+                bloquesPendientes,
+                escape(salaAsignada),
+                ultimoDia != null ? ultimoDia.toString() : "",
+                ultimoBloque);
+    }
+
+    public static String formatBatch(List<SolicitudInfo> solicitudes) {
+        StringBuilder sb = new StringBuilder();
+        for (SolicitudInfo solicitud : solicitudes) {
+            if (sb.length() > 0) {
+                sb.append(BATCH_SEPARATOR);
+            }
+            sb.append(solicitud.format());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Lee un CFP por lotes. Retorna null si alguna linea no tiene el formato esperado.
+     */
+    public static List<SolicitudInfo> parseBatch(String content) {
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+
+        String[] lines = content.split(BATCH_SEPARATOR);
+        List<SolicitudInfo> solicitudes = new ArrayList<>(lines.length);
+        for (String line : lines) {
+            SolicitudInfo info = parse(line);
+            if (info == null) {
+                return null;
+            }
+            solicitudes.add(info);
+        }
+        return solicitudes;
+    }
+
+    /**
+     * Lee el contenido de un CFP. Retorna null si el contenido no tiene el formato esperado.
+     */
+    public static SolicitudInfo parse(String content) {
+        if (content == null) {
+            return null;
+        }
+
+        String[] fields = content.split(",", -1);
+        if (fields.length != FIELD_COUNT && fields.length != SCORING_FIELD_COUNT) {
+            return null;
+        }
+
+        try {
+            SolicitudInfo info = new SolicitudInfo(
+                    unescape(fields[0]),
+                    Integer.parseInt(fields[1].trim()),
+                    Integer.parseInt(fields[2].trim()),
+                    unescape(fields[3]),
+                    Integer.parseInt(fields[4].trim()),
+                    unescape(fields[5]),
+                    fields[6].isEmpty() ? null : Day.valueOf(fields[6]),
+                    Integer.parseInt(fields[7].trim())
+            );
+            if (fields.length == SCORING_FIELD_COUNT) {
+                info.withScoring(
+                        Actividad.valueOf(fields[8]),
+                        TipoContrato.valueOf(fields[9]),
+                        Long.parseLong(fields[10].trim()));
+            }
+            return info;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Campo de texto sin separadores del formato; null se escribe vacio.
+     */
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf('%') < 0 && value.indexOf(',') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("%", "%25").replace(",", "%2C").replace("\n", "%0A");
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('%') < 0) {
+            return value;
+        }
+        // %25 al final, para no volver a interpretar lo que produce
+        return value.replace("%2C", ",").replace("%0A", "\n").replace("%25", "%");
+    }
+
+    public String getAsignatura() { return asignatura; }
+    public int getVacantes() { return vacantes; }
+    public int getNivel() { return nivel; }
+    public String getCampus() { return campus; }
+    public int getBloquesPendientes() { return bloquesPendientes; }
+    public String getSalaAsignada() { return salaAsignada; }
+    public Day getUltimoDia() { return ultimoDia; }
+    public int getUltimoBloque() { return ultimoBloque; }
+    public Actividad getActividad() { return actividad; }
+    public TipoContrato getTipoContrato() { return tipoContrato; }
+    public long getBloquesAsignatura() { return bloquesAsignatura; }
+}
@@ -0,0 +1,86 @@
+package performance;
+
+import java.util.Arrays;
+
+/**
+ * Timeout de espera derivado de los RTT observados por un agente: percentil 99 de las
+ * ultimas muestras multiplicado por un factor y acotado entre un piso y un techo.
+ * Mientras no haya suficientes muestras (o si el factor es 0) se usa el techo, que
+ * corresponde al timeout fijo original.
+ *
+ * No es thread-safe: cada behaviour mantiene su propia instancia y la usa desde el hilo
+ * de su agente.
+ */
+public class AdaptiveTimeout {
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 8;
+    private static final double PERCENTILE = 0.99;
+
+    private final double[] samples = new double[WINDOW];
+    private int count = 0;
+    private int next = 0;
+
+    private final double factor;
+    private final long floorMs;
+    private final long ceilingMs;
+
+    private long cachedTimeout;
+    private boolean dirty = true;
+
+    public AdaptiveTimeout(double factor, long floorMs, long ceilingMs) {
+        this.factor = factor;
+        this.ceilingMs = ceilingMs;
+        this.floorMs = Math.min(floorMs, ceilingMs);
+        this.cachedTimeout = ceilingMs;
+    }
+
+    /**
+     * Agrega un RTT en milisegundos. Ignora valores nulos o negativos (endRequest retorna
+     * null cuando no encuentra la solicitud).
+     */
+    public void record(Double rttMs) {
+        if (rttMs == null || rttMs < 0 || rttMs.isNaN()) {
+            return;
+        }
+
+        samples[next] = rttMs;
+        next = (next + 1) % WINDOW;
+        if (count < WINDOW) {
+            count++;
+        }
+        dirty = true;
+    }
+
+    public long timeoutMillis() {
+        if (factor <= 0 || count < MIN_SAMPLES) {
+            return ceilingMs;
+        }
+
+        if (dirty) {
+            long timeout = (long) Math.ceil(percentile(PERCENTILE) * factor);
+            cachedTimeout = Math.max(floorMs, Math.min(ceilingMs, timeout));
+            dirty = false;
+        }
+        return cachedTimeout;
+    }
+
+    /**
+     * Espera extra antes de reintentar: 2^retry veces la base, con la base acotada por el
+     * timeout actual para que escale con los RTT medidos.
+     */
+    public long backoffMillis(int retryCount, long baseMs) {
+        long base = Math.min(baseMs, timeoutMillis());
+        return (long) Math.pow(2, retryCount) * base;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    private double percentile(double p) {
+        double[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
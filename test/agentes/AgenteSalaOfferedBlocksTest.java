@@ -0,0 +1,65 @@
+package agentes;
+
+import constants.enums.Actividad;
+import constants.enums.TipoContrato;
+import objetos.helper.GrantRequest;
+import objetos.helper.SlotGrid;
+import objetos.helper.SolicitudInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * El CFP y el otorgamiento deben ofrecer los mismos bloques a una misma asignatura: se
+ * comparan cfpBlocks y grantBlocks (con el profesor sin bloques ocupados) sobre mascaras
+ * libres al azar y todo el rango de nivel, bloques pendientes y tipo de sala.
+ */
+class AgenteSalaOfferedBlocksTest {
+    private static final int[] CAPACIDADES = {5, 10, 15, 40, 80, 200};
+    private static final int[] VACANTES = {1, 5, 9, 10, 30, 60};
+
+    @Test
+    void cfpAndGrantOfferSameBlocks() {
+        Random random = new Random(1L);
+        int nonEmpty = 0;
+        for (int round = 0; round < 200; round++) {
+            long free = random.nextLong() & SlotGrid.FULL_MASK;
+            for (int capacidad : CAPACIDADES) {
+                for (int vacantes : VACANTES) {
+                    for (int nivel = 1; nivel <= 10; nivel++) {
+                        for (int pendientes = 1; pendientes <= 6; pendientes++) {
+                            SolicitudInfo solicitud = new SolicitudInfo("Calculo", vacantes, nivel,
+                                    "Playa Ancha", pendientes, null, null, 0);
+                            GrantRequest request = new GrantRequest("Calculo", "Profesor", vacantes, nivel,
+                                    "Playa Ancha", pendientes, Actividad.TEORIA, TipoContrato.JORNADA_COMPLETA,
+                                    0L, 0L, 2, 0L, new long[0], 0);
+
+                            long cfp = AgenteSala.cfpBlocks(free, capacidad, solicitud);
+                            assertEquals(cfp, AgenteSala.grantBlocks(free, capacidad, request),
+                                    String.format("capacidad=%d vacantes=%d nivel=%d pendientes=%d free=%x",
+                                            capacidad, vacantes, nivel, pendientes, free));
+                            if (cfp != 0) {
+                                nonEmpty++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        assertTrue(nonEmpty > 0, "no case offered any block");
+    }
+
+    @Test
+    void grantSkipsProfessorOccupiedBlocks() {
+        SolicitudInfo solicitud = new SolicitudInfo("Calculo", 30, 2, "Playa Ancha", 3, null, null, 0);
+        long occupied = SlotGrid.everyDay(0b1_0000_0000 >>> 3);
+        GrantRequest request = new GrantRequest("Calculo", "Profesor", 30, 2, "Playa Ancha", 3,
+                Actividad.TEORIA, TipoContrato.JORNADA_COMPLETA, occupied, 0L, 2, 0L, new long[0], 0);
+
+        assertEquals(AgenteSala.cfpBlocks(SlotGrid.FULL_MASK, 40, solicitud) & ~occupied,
+                AgenteSala.grantBlocks(SlotGrid.FULL_MASK, 40, request));
+    }
+}
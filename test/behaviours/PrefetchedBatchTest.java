@@ -0,0 +1,71 @@
+package behaviours;
+
+import constants.enums.Actividad;
+import jade.core.AID;
+import jade.lang.acl.ACLMessage;
+import objetos.Asignatura;
+import objetos.BatchAvailability;
+import objetos.helper.BatchProposal;
+import objetos.helper.SlotGrid;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Un lote de dos asignaturas enviado a dos salas: una responde y la otra rechaza el CFP.
+ * La asignatura siguiente del lote debe usar la respuesta sin esperar a la sala que rechazo.
+ */
+class PrefetchedBatchTest {
+    private static final AID SALA_A = new AID("salaA@test", AID.ISGUID);
+    private static final AID SALA_B = new AID("salaB@test", AID.ISGUID);
+    private static final Asignatura SIGUIENTE =
+            new Asignatura("Calculo", 1, "A", 2, 30, "Playa Ancha", "MAT101", Actividad.TEORIA);
+
+    @Test
+    void refusedBatchDoesNotStallNextSubject() {
+        PrefetchedBatch batch = new PrefetchedBatch();
+        batch.start(0, 2);
+        batch.expect(SALA_A, "conv-a", 0b11L);
+        batch.expect(SALA_B, "conv-b", 0b11L);
+        assertEquals(2, batch.countPending());
+
+        PrefetchedBatch.Room room = batch.pending(SALA_A, "conv-a");
+        assertNotNull(room);
+        room.fill(new BatchAvailability("A-101", "Playa Ancha", 40, 1L, SlotGrid.FULL_MASK, 0b11L),
+                new ACLMessage(ACLMessage.PROPOSE));
+
+        assertTrue(batch.refuse(SALA_B, "conv-b"));
+        assertEquals(0, batch.countPending(), "a refused room must not stay pending");
+
+        // Siguiente asignatura del lote: se arma con lo recibido, sin salas por esperar
+        assertTrue(batch.covers(1));
+        BatchProposal proposal = batch.get(SALA_A).proposalFor(batch.offsetOf(1), SIGUIENTE, SIGUIENTE.getHoras());
+        assertNotNull(proposal);
+        assertEquals("A-101", proposal.getRoomCode());
+        assertNull(batch.get(SALA_B));
+    }
+
+    @Test
+    void lateRefuseIsIgnored() {
+        PrefetchedBatch batch = new PrefetchedBatch();
+        batch.start(0, 2);
+        batch.expect(SALA_A, "conv-old", 0b11L);
+
+        // Nuevo lote a la misma sala: el REFUSE del anterior no lo descarta
+        batch.start(2, 2);
+        batch.expect(SALA_A, "conv-new", 0b11L);
+        assertFalse(batch.refuse(SALA_A, "conv-old"));
+        assertEquals(1, batch.countPending());
+
+        // Ni un REFUSE despues de que la sala ya respondio
+        batch.pending(SALA_A, "conv-new").fill(
+                new BatchAvailability("A-101", "Playa Ancha", 40, 1L, SlotGrid.FULL_MASK, 0b11L),
+                new ACLMessage(ACLMessage.PROPOSE));
+        assertFalse(batch.refuse(SALA_A, "conv-new"));
+        assertNotNull(batch.get(SALA_A));
+    }
+}
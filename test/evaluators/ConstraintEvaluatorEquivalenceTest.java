@@ -0,0 +1,464 @@
+package evaluators;
+
+import agentes.AgenteProfesor;
+import constants.Commons;
+import constants.enums.Actividad;
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+import interfaces.NegotiationInterface;
+import objetos.Asignatura;
+import objetos.ClassroomAvailability;
+import objetos.ProfessorSchedule;
+import objetos.RoomCatalog;
+import objetos.helper.BatchProposal;
+import objetos.helper.SlotGrid;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Compara ConstraintEvaluator.filterAndSortProposals (mascaras SlotGrid, ActiveSubjectState y
+ * ConstraintPipeline) con la implementacion con listas y mapas que tenia antes, copiada en
+ * ListEvaluator. La unica diferencia con esa version es la satisfaccion de la propuesta, que
+ * ahora es la de su mejor bloque.
+ *
+ * Cada ronda genera un catalogo de salas, un profesor con asignaturas y bloques ya asignados
+ * (via updateScheduleInfo, sin levantar el agente) y propuestas al azar, con y sin puntajes de
+ * la sala. Una instancia del pipeline se reutiliza entre rondas, asi que tambien se cubre el
+ * reordenamiento de reglas; las rondas con mas de 128 propuestas pasan por la evaluacion
+ * paralela.
+ */
+class ConstraintEvaluatorEquivalenceTest {
+    private static final String[] CAMPUSES = {"Playa Brava", "Kaufmann"};
+    private static final Actividad[] ACTIVIDADES = Actividad.values();
+    private static final Day[] DAYS = Day.values();
+    private static final int ROUNDS = 3000;
+
+    @Test
+    void sameOrderAndSatisfactionAsListImplementation() throws Exception {
+        Random random = new Random(1L);
+        ConstraintPipeline pipeline = ConstraintPipeline.defaults();
+
+        int nonEmpty = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            int roomCount = 3 + random.nextInt(12);
+            RoomCatalog catalog = RoomCatalog.install(randomRooms(random, roomCount));
+            AgenteProfesor profesor = randomProfesor(random, roomCount);
+
+            // La implementacion anterior recorria las listas de bloques por dia de cada propuesta
+            Map<BatchProposal, Map<Day, List<Integer>>> blockLists = new IdentityHashMap<>();
+            List<BatchProposal> expectedInput = new ArrayList<>();
+            List<BatchProposal> actualInput = new ArrayList<>();
+            int proposalCount = random.nextInt(300);
+            for (int i = 0; i < proposalCount; i++) {
+                ClassroomAvailability availability = randomAvailability(random, catalog, roomCount);
+                BatchProposal reference = new BatchProposal(availability, null);
+                blockLists.put(reference, dayLists(availability));
+                expectedInput.add(reference);
+                actualInput.add(new BatchProposal(availability, null));
+            }
+
+            List<BatchProposal> expected = new ListEvaluator(profesor, blockLists).filterAndSortProposals(expectedInput);
+            List<BatchProposal> actual = new ConstraintEvaluator(profesor, pipeline).filterAndSortProposals(actualInput);
+
+            int[] expectedOrder = expected.stream().mapToInt(expectedInput::indexOf).toArray();
+            int[] actualOrder = actual.stream().mapToInt(actualInput::indexOf).toArray();
+            assertArrayEquals(expectedOrder, actualOrder, "order in round " + round);
+            for (int i = 0; i < proposalCount; i++) {
+                int want = expectedInput.get(i).getSatisfactionScore();
+                int got = actualInput.get(i).getSatisfactionScore();
+                if (want != got) {
+                    fail("round " + round + " proposal " + i + ": satisfaction " + got + ", expected " + want);
+                }
+            }
+            if (expectedOrder.length > 0) {
+                nonEmpty++;
+            }
+        }
+
+        // Que la comparacion no se reduzca a listas vacias
+        assertTrue(nonEmpty > ROUNDS / 2, "only " + nonEmpty + " rounds accepted a proposal");
+    }
+
+    /**
+     * Vista por dia de la disponibilidad en el orden de un HashMap, el mismo en que la
+     * implementacion anterior recorria los dias.
+     */
+    private static Map<Day, List<Integer>> dayLists(ClassroomAvailability availability) {
+        Map<Day, List<Integer>> days = new HashMap<>();
+        availability.getAvailableBlocks().forEach((day, blocks) -> days.put(day, new ArrayList<>(blocks)));
+        return days;
+    }
+
+    private static JSONArray randomRooms(Random random, int count) {
+        JSONArray rooms = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject room = new JSONObject();
+            room.put("Codigo", "R" + i);
+            room.put("Campus", CAMPUSES[random.nextInt(CAMPUSES.length)]);
+            room.put("Capacidad", (long) (random.nextInt(4) == 0 ? 4 + random.nextInt(6) : 10 + random.nextInt(60)));
+            room.put("Turno", 1L);
+            rooms.add(room);
+        }
+        return rooms;
+    }
+
+    /**
+     * Profesor con asignaturas (a veces con nombre repetido) y bloques asignados al azar, en
+     * salas del catalogo o desconocidas.
+     */
+    private static AgenteProfesor randomProfesor(Random random, int roomCount) throws Exception {
+        List<Asignatura> subjects = new ArrayList<>();
+        int subjectCount = 1 + random.nextInt(6);
+        for (int i = 0; i < subjectCount; i++) {
+            String name = i > 0 && random.nextInt(5) == 0 ? subjects.get(0).getNombre() : "S" + i;
+            subjects.add(new Asignatura(name, 1 + random.nextInt(8), "A", 1 + random.nextInt(6),
+                    3 + random.nextInt(60), CAMPUSES[random.nextInt(CAMPUSES.length)], "C" + i,
+                    ACTIVIDADES[random.nextInt(ACTIVIDADES.length)]));
+        }
+
+        AgenteProfesor profesor = new AgenteProfesor();
+        setField(profesor, "asignaturas", subjects);
+        Method init = AgenteProfesor.class.getDeclaredMethod("initializeDataStructures");
+        init.setAccessible(true);
+        init.invoke(profesor);
+
+        int assigned = random.nextInt(25);
+        for (int i = 0; i < assigned; i++) {
+            if (random.nextInt(4) == 0 && profesor.getCurrentSubjectIndex() < subjectCount - 1) {
+                profesor.moveToNextSubject();
+            }
+            profesor.updateScheduleInfo(DAYS[random.nextInt(DAYS.length)], "R" + random.nextInt(roomCount + 1),
+                    1 + random.nextInt(Commons.MAX_BLOQUE_DIURNO), profesor.getCurrentSubject().getNombre(),
+                    1 + random.nextInt(10));
+        }
+        if (random.nextBoolean() && profesor.getCurrentSubjectIndex() < subjectCount - 1) {
+            profesor.moveToNextSubject();
+        }
+
+        int pending = 1 + random.nextInt(6);
+        NegotiationInterface negotiation = () -> pending;
+        setField(profesor, "negotiationBehaviour", negotiation);
+        return profesor;
+    }
+
+    private static ClassroomAvailability randomAvailability(Random random, RoomCatalog catalog, int roomCount) {
+        // Un indice fuera del catalogo simula una sala desconocida
+        int room = random.nextInt(roomCount + 1);
+        int capacity;
+        String campus;
+        if (room < roomCount) {
+            capacity = catalog.getCapacity(room);
+            campus = catalog.getCampusName(catalog.getCampusId(room));
+        } else {
+            capacity = 5 + random.nextInt(50);
+            campus = CAMPUSES[random.nextInt(CAMPUSES.length)];
+        }
+
+        long mask = random.nextLong() & SlotGrid.FULL_MASK;
+        if (random.nextBoolean()) {
+            mask &= random.nextLong();
+        }
+        if (random.nextInt(3) == 0) {
+            mask &= random.nextLong() & random.nextLong();
+        }
+
+        byte[] scores = null;
+        if (random.nextBoolean()) {
+            scores = new byte[SlotGrid.SLOTS];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = (byte) (1 + random.nextInt(10));
+            }
+        }
+        return new ClassroomAvailability("R" + room, campus, capacity, 0L, SlotGrid.toBlockLists(mask), scores);
+    }
+
+    private static void setField(AgenteProfesor profesor, String name, Object value) throws Exception {
+        Field field = AgenteProfesor.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(profesor, value);
+    }
+
+    /**
+     * filterAndSortProposals con listas de bloques y mapas por dia, como antes de SlotGrid.
+     * Se omite el chequeo de bloques continuos de isValidProposalFast, que no tenia efecto.
+     */
+    private static final class ListEvaluator {
+        private static final class BatchProposalScore {
+            final BatchProposal proposal;
+            final int score;
+
+            BatchProposalScore(BatchProposal proposal, int score) {
+                this.proposal = proposal;
+                this.score = score;
+            }
+        }
+
+        private static final int MEETING_ROOM_THRESHOLD = Commons.MEETING_ROOM_THRESHOLD;
+
+        private final AgenteProfesor profesor;
+        private final Map<BatchProposal, Map<Day, List<Integer>>> blockLists;
+
+        ListEvaluator(AgenteProfesor profesor, Map<BatchProposal, Map<Day, List<Integer>>> blockLists) {
+            this.profesor = profesor;
+            this.blockLists = blockLists;
+        }
+
+        List<BatchProposal> filterAndSortProposals(List<BatchProposal> proposals) {
+            if (proposals.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            Asignatura currentSubject = profesor.getCurrentSubject();
+            RoomCatalog catalog = RoomCatalog.get();
+            String currentCampus = currentSubject.getCampus();
+            int currentCampusId = catalog.campusIdOf(currentCampus);
+            int currentNivel = currentSubject.getNivel();
+            boolean needsMeetingRoom = currentSubject.getVacantes() < MEETING_ROOM_THRESHOLD;
+
+            Map<Day, List<Integer>> currentSchedule = profesor.getBlocksBySubject(currentSubject.getNombre());
+            int[] roomUsage = new int[catalog.size()];
+            Map<Day, Integer> blocksPerDay = new HashMap<>();
+            int mostUsedRoom = calculateMostUsedRoom(currentSchedule, blocksPerDay, roomUsage);
+
+            List<BatchProposalScore> scoredProposals = new ArrayList<>();
+            for (BatchProposal proposal : proposals) {
+                Map<Day, List<Integer>> days = blockLists.get(proposal);
+                if (!ConstraintEvaluator.isRoomTypeAllowed(proposal.getCapacity(), currentSubject.getVacantes()) ||
+                        !isValidProposalFast(proposal, days, currentCampusId, currentNivel % 2 == 1) ||
+                        !validateGapsForProposal(days)) {
+                    continue;
+                }
+
+                calculateSatisfactionScores(proposal, days, currentSubject, currentCampus, currentSchedule);
+                int totalScore = calculateProposalScore(proposal, days, currentCampusId, currentNivel, currentSubject);
+                totalScore = applyMeetingRoomScore(totalScore, proposal, needsMeetingRoom, currentSubject);
+                totalScore = applyDayBasedScoring(totalScore, proposal, days, currentCampusId, blocksPerDay,
+                        mostUsedRoom, roomUsage);
+                totalScore = Math.max(totalScore, 1);
+
+                scoredProposals.add(new BatchProposalScore(proposal, totalScore));
+            }
+
+            scoredProposals.sort((ps1, ps2) -> ps2.score - ps1.score);
+            return scoredProposals.stream()
+                    .map(ps -> ps.proposal)
+                    .collect(Collectors.toList());
+        }
+
+        private int calculateMostUsedRoom(Map<Day, List<Integer>> currentSchedule, Map<Day, Integer> blocksPerDay,
+                                          int[] roomUsage) {
+            int mostUsedRoom = RoomCatalog.UNKNOWN;
+            ProfessorSchedule schedule = profesor.getSchedule();
+
+            for (Map.Entry<Day, List<Integer>> entry : currentSchedule.entrySet()) {
+                Day day = entry.getKey();
+                List<Integer> blocks = entry.getValue();
+                blocksPerDay.put(day, blocks.size());
+
+                for (int block : blocks) {
+                    int room = schedule.getRoomId(day, block);
+                    if (room != RoomCatalog.UNKNOWN) {
+                        int count = ++roomUsage[room];
+                        if (mostUsedRoom == RoomCatalog.UNKNOWN || count > roomUsage[mostUsedRoom]) {
+                            mostUsedRoom = room;
+                        }
+                    }
+                }
+            }
+            return mostUsedRoom;
+        }
+
+        private boolean isValidProposalFast(BatchProposal proposal, Map<Day, List<Integer>> days,
+                                            int currentCampusId, boolean isOddYear) {
+            if (!checkCampusConstraints(proposal, days, currentCampusId)) {
+                return false;
+            }
+
+            for (List<Integer> blocks : days.values()) {
+                for (int block : blocks) {
+                    if (ConstraintEvaluator.isBlockAllowed(block, isOddYear,
+                            profesor.getBloquesPendientesInNegotiation(), proposal.getSatisfactionScore())) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        private boolean checkCampusConstraints(BatchProposal proposal, Map<Day, List<Integer>> days,
+                                               int currentCampusId) {
+            if (proposal.getCampusId() == currentCampusId) {
+                return true;
+            }
+
+            ProfessorSchedule schedule = profesor.getSchedule();
+            for (Map.Entry<Day, List<Integer>> entry : days.entrySet()) {
+                Day dia = entry.getKey();
+                if (schedule.hasCampusTransition(dia)) {
+                    return false;
+                }
+
+                for (int bloque : entry.getValue()) {
+                    if (schedule.isOtherCampus(dia, bloque - 1, proposal.getCampusId()) ||
+                            schedule.isOtherCampus(dia, bloque + 1, proposal.getCampusId())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean validateGapsForProposal(Map<Day, List<Integer>> days) {
+            if (profesor.getTipoContrato() == TipoContrato.JORNADA_PARCIAL) {
+                return true;
+            }
+
+            for (Map.Entry<Day, List<Integer>> entry : days.entrySet()) {
+                List<Integer> allBlocks = new ArrayList<>();
+                profesor.getBlocksByDay(entry.getKey()).values().forEach(allBlocks::addAll);
+                allBlocks.addAll(entry.getValue());
+                Collections.sort(allBlocks);
+
+                int consecutiveGaps = 0;
+                for (int i = 1; i < allBlocks.size(); i++) {
+                    int gap = allBlocks.get(i) - allBlocks.get(i - 1) - 1;
+                    if (gap > 0) {
+                        consecutiveGaps += gap;
+                        if (consecutiveGaps > 1) {
+                            return false;
+                        }
+                    } else {
+                        consecutiveGaps = 0;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Satisfaccion de cada bloque (la de la sala si la envio) y la del mejor bloque como
+         * satisfaccion de la propuesta.
+         */
+        private void calculateSatisfactionScores(BatchProposal proposal, Map<Day, List<Integer>> days,
+                                                 Asignatura currentSubject, String currentCampus,
+                                                 Map<Day, List<Integer>> currentSchedule) {
+            int best = 0;
+            boolean any = false;
+            for (Map.Entry<Day, List<Integer>> entry : days.entrySet()) {
+                for (int block : entry.getValue()) {
+                    int satisfaction;
+                    if (proposal.hasRoomScores()) {
+                        satisfaction = proposal.getBlockScore(SlotGrid.slot(entry.getKey(), block));
+                    } else {
+                        satisfaction = TimetablingEvaluator.calculateSatisfaction(
+                                proposal.getCapacity(),
+                                currentSubject.getVacantes(),
+                                currentSubject.getNivel(),
+                                proposal.getCampus(),
+                                currentCampus,
+                                block,
+                                currentSchedule,
+                                profesor.getTipoContrato(),
+                                currentSubject.getActividad());
+                    }
+                    best = Math.max(best, satisfaction);
+                    any = true;
+                }
+            }
+            if (any) {
+                proposal.setSatisfactionScore(best);
+            }
+        }
+
+        private int calculateProposalScore(BatchProposal proposal, Map<Day, List<Integer>> days,
+                                           int currentCampusId, int nivel, Asignatura subject) {
+            int score = proposal.getCampusId() == currentCampusId ? 10000 : -10000;
+
+            boolean isOddYear = nivel % 2 == 1;
+            for (List<Integer> dayBlocks : days.values()) {
+                List<Integer> blocks = new ArrayList<>(dayBlocks);
+                for (int block : blocks) {
+                    if (isOddYear ? block <= 4 : block >= 5) {
+                        score += 3000;
+                    }
+                }
+
+                if (profesor.getTipoContrato() != TipoContrato.JORNADA_PARCIAL && blocks.size() > 1) {
+                    Collections.sort(blocks);
+                    for (int i = 1; i < blocks.size(); i++) {
+                        int gap = blocks.get(i) - blocks.get(i - 1);
+                        score += gap <= 2 ? 5000 : -8000;
+                    }
+                }
+            }
+
+            score += proposal.getSatisfactionScore() * 10;
+            score -= Math.abs(proposal.getCapacity() - subject.getVacantes()) * 100;
+            return score;
+        }
+
+        private int applyMeetingRoomScore(int totalScore, BatchProposal proposal, boolean needsMeetingRoom,
+                                          Asignatura currentSubject) {
+            if (!needsMeetingRoom) {
+                return totalScore;
+            }
+
+            if (proposal.getCapacity() < MEETING_ROOM_THRESHOLD) {
+                totalScore += 15000;
+                if (Math.abs(proposal.getCapacity() - currentSubject.getVacantes()) <= 2) {
+                    totalScore += 5000;
+                }
+            } else {
+                totalScore -= (proposal.getCapacity() - currentSubject.getVacantes()) * 500;
+            }
+            return totalScore;
+        }
+
+        private int applyDayBasedScoring(int totalScore, BatchProposal proposal, Map<Day, List<Integer>> days,
+                                         int currentCampusId, Map<Day, Integer> blocksPerDay, int mostUsedRoom,
+                                         int[] roomUsage) {
+            ProfessorSchedule schedule = profesor.getSchedule();
+            for (Map.Entry<Day, List<Integer>> entry : days.entrySet()) {
+                Day proposalDay = entry.getKey();
+                int dayUsage = blocksPerDay.getOrDefault(proposalDay, 0);
+
+                totalScore -= dayUsage * 6000;
+                if (!blocksPerDay.containsKey(proposalDay)) {
+                    totalScore += 8000;
+                }
+
+                if (mostUsedRoom != RoomCatalog.UNKNOWN && proposal.getRoomId() == mostUsedRoom) {
+                    totalScore += 7000;
+                }
+
+                if (proposal.getCampusId() != currentCampusId) {
+                    totalScore -= 10000;
+                    for (int block : entry.getValue()) {
+                        if (schedule.isOtherCampus(proposalDay, block - 1, currentCampusId) ||
+                                schedule.isOtherCampus(proposalDay, block + 1, currentCampusId)) {
+                            totalScore -= 8000;
+                        }
+                    }
+                }
+
+                int roomCount = proposal.getRoomId() != RoomCatalog.UNKNOWN ? roomUsage[proposal.getRoomId()] : 0;
+                totalScore -= roomCount * 1500;
+
+                if (dayUsage >= 2) {
+                    totalScore -= 6000;
+                }
+            }
+            return totalScore;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package evaluators;
+
+import constants.Commons;
+import constants.enums.Actividad;
+import constants.enums.Day;
+import constants.enums.TipoContrato;
+import objetos.helper.SlotGrid;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Compara TimetablingEvaluator (tablas precalculadas) con la formula original, que se copia
+ * aqui tal cual estaba antes de las tablas. Recorre todo el dominio de las tablas:
+ * capacidad/vacantes (todos los tramos de ocupacion), nivel, bloque, actividad, contrato,
+ * campus y los patrones de continuidad, con las tres firmas de calculateSatisfaction.
+ */
+class TimetablingEvaluatorTableTest {
+    private static final Actividad[] ACTIVIDADES = Arrays.copyOf(Actividad.values(), Actividad.values().length + 1);
+    private static final TipoContrato[] CONTRATOS = Arrays.copyOf(TipoContrato.values(), TipoContrato.values().length + 1);
+
+    // Sin bloques, un bloque, hueco de 1, hueco grande, varios dias
+    private static final long[] MASKS = {
+            0L, 1L, 0b101L, 0b1000000001L << 9, 0b100101011L, (0b110010001L << 18) | 0b1011L
+    };
+
+    @Test
+    void tablesMatchFormulaOverWholeDomain() {
+        // Todas las capacidades de la tabla y algunas mayores, que se evaluan sin tabla
+        int[] capacities = new int[264 + 20];
+        for (int i = 0; i < 264; i++) {
+            capacities[i] = i;
+        }
+        for (int i = 264; i < capacities.length; i++) {
+            capacities[i] = 250 + i * 37;
+        }
+
+        for (int capacity : capacities) {
+            for (int students = 0; students <= 80; students++) {
+                for (int nivel = -1; nivel <= 6; nivel++) {
+                    for (int block = -1; block <= Commons.MAX_BLOQUE_DIURNO + 2; block++) {
+                        for (Actividad activity : ACTIVIDADES) {
+                            for (TipoContrato contrato : CONTRATOS) {
+                                for (long mask : MASKS) {
+                                    compare(capacity, students, nivel, "A", "A", block, mask, contrato, activity, false);
+                                    compare(capacity, students, nivel, "A", "B", block, mask, contrato, activity, false);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void continuityMatchesFormulaForEveryDayPattern() {
+        // Cada patron de 9 bits en cada dia, solo y junto a otros dias
+        long[] others = {0L, SlotGrid.FULL_MASK, 0b101010101L * (1L | 1L << 18 | 1L << 36)};
+        for (int d = 0; d < SlotGrid.DAYS; d++) {
+            long dayMask = SlotGrid.DAY_MASK << (d * SlotGrid.BLOCKS_PER_DAY);
+            for (long pattern = 0; pattern <= SlotGrid.DAY_MASK; pattern++) {
+                for (long other : others) {
+                    long mask = (pattern << (d * SlotGrid.BLOCKS_PER_DAY)) | (other & ~dayMask);
+                    for (TipoContrato contrato : CONTRATOS) {
+                        for (int block = 1; block <= Commons.MAX_BLOQUE_DIURNO; block++) {
+                            compare(40, 30, 3, "A", "A", block, mask, contrato, Actividad.TEORIA, true);
+                            compare(40, 30, 4, "A", "B", block, mask, contrato, Actividad.TALLER, true);
+                            compare(60, 20, 1, "A", "B", block, mask, contrato, null, true);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void compare(int capacity, int students, int nivel, String campus, String preferredCampus,
+                                int block, long mask, TipoContrato contrato, Actividad activity, boolean withMapOverload) {
+        int expected = Formula.calculateSatisfaction(capacity, students, nivel, campus, preferredCampus,
+                block, mask, contrato, activity);
+        int withMask = TimetablingEvaluator.calculateSatisfaction(capacity, students, nivel, campus,
+                preferredCampus, block, mask, contrato, activity);
+        int withTerms = TimetablingEvaluator.calculateSatisfaction(capacity, students, nivel, block, activity,
+                TimetablingEvaluator.scheduleTerms(campus, preferredCampus, mask, contrato));
+        // La version con mapa solo convierte a mascara; se prueba en los patrones por dia
+        int withMap = !withMapOverload ? expected : TimetablingEvaluator.calculateSatisfaction(capacity,
+                students, nivel, campus, preferredCampus, block, SlotGrid.toBlockLists(mask), contrato, activity);
+
+        if (expected != withMask || expected != withTerms || expected != withMap) {
+            fail(String.format("cap=%d students=%d nivel=%d campus=%s/%s block=%d mask=%x %s %s: " +
+                            "expected %d, got %d/%d/%d", capacity, students, nivel, campus, preferredCampus,
+                    block, mask, contrato, activity, expected, withMask, withTerms, withMap));
+        }
+    }
+
+    /**
+     * calculateSatisfaction con los factores evaluateX aplicados por consulta, como antes de
+     * las tablas.
+     */
+    private static final class Formula {
+        private static final double OPTIMAL_OCCUPANCY_MIN = 0.75;
+        private static final double OPTIMAL_OCCUPANCY_MAX = 0.95;
+        private static final int MIN_STUDENTS = 9;
+        private static final int MAX_STUDENTS = 70;
+
+        private static final double CAPACITY_WEIGHT = 0.25;
+        private static final double TIME_SLOT_WEIGHT = 0.20;
+        private static final double CAMPUS_WEIGHT = 0.20;
+        private static final double CONTINUITY_WEIGHT = 0.15;
+        private static final double ACTIVITY_TYPE_WEIGHT = 0.20;
+
+        private static final int MEETING_ROOM_THRESHOLD = 10;
+
+        static int calculateSatisfaction(int roomCapacity, int studentsCount, int nivel, String campus,
+                                         String preferredCampus, int block, long existingBlocks,
+                                         TipoContrato contrato, Actividad activity) {
+            if (studentsCount > roomCapacity) {
+                return 1;
+            }
+
+            if (studentsCount < MIN_STUDENTS) {
+                if (roomCapacity < MEETING_ROOM_THRESHOLD) {
+                    double meetingRoomRatio = (double) studentsCount / roomCapacity;
+                    if (meetingRoomRatio >= 0.5 && meetingRoomRatio <= 0.9) {
+                        return 5;
+                    } else {
+                        return 3;
+                    }
+                } else {
+                    return 2;
+                }
+            }
+
+            if (studentsCount > MAX_STUDENTS) {
+                return 2;
+            }
+
+            double capacityScore = evaluateCapacity(roomCapacity, studentsCount);
+            double timeSlotScore = evaluateTimeSlot(nivel, block);
+            double campusScore = evaluateCampus(campus, preferredCampus, existingBlocks);
+            double continuityScore = evaluateContinuity(existingBlocks, contrato);
+            double activityScore = evaluateActivityType(activity, block);
+
+            double weightedScore = (
+                    capacityScore * CAPACITY_WEIGHT +
+                            timeSlotScore * TIME_SLOT_WEIGHT +
+                            campusScore * CAMPUS_WEIGHT +
+                            continuityScore * CONTINUITY_WEIGHT +
+                            activityScore * ACTIVITY_TYPE_WEIGHT
+            ) * 10;
+
+            return Math.max(1, Math.min(10, (int) Math.round(weightedScore)));
+        }
+
+        private static double evaluateCapacity(int roomCapacity, int studentsCount) {
+            if (studentsCount < MEETING_ROOM_THRESHOLD) {
+                if (roomCapacity < MEETING_ROOM_THRESHOLD) {
+                    double meetingRoomRatio = (double) studentsCount / roomCapacity;
+                    if (meetingRoomRatio >= 0.5 && meetingRoomRatio <= 0.9) {
+                        return 1.0;
+                    } else {
+                        return 0.8;
+                    }
+                } else {
+                    if (roomCapacity <= studentsCount * 5) {
+                        return 0.7;
+                    } else {
+                        return 0.5;
+                    }
+                }
+            }
+
+            double occupancyRatio = (double) studentsCount / roomCapacity;
+
+            if (occupancyRatio >= OPTIMAL_OCCUPANCY_MIN && occupancyRatio <= OPTIMAL_OCCUPANCY_MAX) {
+                return 1.0;
+            } else if (occupancyRatio < OPTIMAL_OCCUPANCY_MIN) {
+                return 0.7 + (occupancyRatio / OPTIMAL_OCCUPANCY_MIN) * 0.3;
+            } else if (occupancyRatio <= 1.0) {
+                return 0.8;
+            } else {
+                return 0.1;
+            }
+        }
+
+        private static double evaluateTimeSlot(int nivel, int block) {
+            if (block < 1 || block > Commons.MAX_BLOQUE_DIURNO) {
+                return 0.0;
+            }
+
+            boolean isFirstYear = nivel <= 2;
+            boolean isOddLevel = nivel % 2 == 1;
+
+            if (isFirstYear) {
+                return block <= 4 ? 1.0 : 0.6;
+            }
+
+            if (isOddLevel) {
+                return block <= 4 ? 1.0 : 0.7;
+            } else {
+                return block >= 5 ? 1.0 : 0.7;
+            }
+        }
+
+        private static double evaluateActivityType(Actividad activity, int block) {
+            if (activity == Actividad.TEORIA) {
+                return block <= 4 ? 1.0 : 0.6;
+            }
+
+            if (activity == Actividad.LABORATORIO ||
+                    activity == Actividad.TALLER ||
+                    activity == Actividad.PRACTICA) {
+                return block >= 5 ? 1.0 : 0.7;
+            }
+
+            if (activity == Actividad.AYUDANTIA ||
+                    activity == Actividad.TUTORIA) {
+                return 1.0;
+            }
+
+            return 0.8;
+        }
+
+        private static double evaluateCampus(String campus, String preferredCampus, long existingBlocks) {
+            if (!campus.equals(preferredCampus)) {
+                boolean hasOtherCampus = existingBlocks != 0;
+
+                if (hasOtherCampus) {
+                    return 0.5;
+                }
+            }
+
+            return campus.equals(preferredCampus) ? 1.0 : 0.7;
+        }
+
+        private static double evaluateContinuity(long existingBlocks, TipoContrato tipoContrato) {
+            if (tipoContrato == TipoContrato.JORNADA_PARCIAL) {
+                return 1.0;
+            }
+
+            double score = 1.0;
+            for (Day day : Day.values()) {
+                int bits = SlotGrid.dayBits(existingBlocks, day);
+                if (Integer.bitCount(bits) < 2) continue;
+
+                int previous = Integer.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                while (bits != 0) {
+                    int current = Integer.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    int gap = current - previous - 1;
+                    previous = current;
+
+                    if (gap > 1) {
+                        score *= 0.6;
+                    } else if (gap == 1) {
+                        score *= 0.9;
+                    }
+                }
+            }
+
+            return score;
+        }
+    }
+}